@@ -0,0 +1,149 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import com.gildedrose.shopapi.domain.Item;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+/**
+ * Benchmarks the inventory view, purchase and refresh paths.
+ *
+ * Run with {@code ./gradlew jmh}; pass {@code -PjmhThreads=<n>} to measure under contention and
+ * {@code -PjmhInclude=<regex>} to select benchmarks. The gc profiler reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryServiceBenchmark {
+
+    private static final int SURGE_SIZE = 10;
+
+    @Param({"3", "1000", "100000", "1000000"})
+    public int inventorySize;
+
+    // Views recorded against every item before measuring, as a percentage of the surge size
+    @Param({"0", "50", "200"})
+    public int windowFillPercent;
+
+    @Param({"MAP", "COMPACT"})
+    public InventoryStorage inventoryStorage;
+
+    private AnnotationConfigApplicationContext context;
+    private InventoryService inventoryService;
+    private List<Item> items;
+    private UUID[] itemIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("gildedrose.inventory.location", "classpath:inventory.json");
+        properties.put("gildedrose.inventory.refresh.stock", "MERGE");
+        properties.put("gildedrose.inventory.storage", inventoryStorage.name());
+        properties.put("gildedrose.inventory.cache.items", 100000);
+        properties.put("gildedrose.inventory.cache.bytes", 0);
+        properties.put("gildedrose.inventory.startup", "BLOCKING");
+        properties.put("gildedrose.inventory.startup.wait.ms", 30000);
+        properties.put("gildedrose.inventory.startup.wait.max", 1000);
+        properties.put("gildedrose.inventory.startup.retry.ms", 1000);
+        properties.put("gildedrose.journal.enabled", false);
+        properties.put("gildedrose.journal.directory", "build/jmh-journal");
+        properties.put("gildedrose.journal.segment.bytes", 1 << 20);
+        properties.put("gildedrose.journal.snapshot.interval.ms", 60000);
+        properties.put("gildedrose.surge.size", SURGE_SIZE);
+        properties.put("gildedrose.surge.window.ms", TimeUnit.HOURS.toMillis(1));
+        properties.put("gildedrose.surge.window.buckets", 60);
+        properties.put("gildedrose.surge.tiers", SURGE_SIZE + ":1.1");
+        properties.put("gildedrose.surge.reprice.ms", TimeUnit.MINUTES.toMillis(1));
+
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        // Any property the benchmark does not set falls back to the application default
+        context.getEnvironment().getPropertySources().addLast(new ResourcePropertySource("classpath:application.properties"));
+        context.register(SimpleMeterRegistry.class, InventoryMetrics.class, LocalSurgeCounter.class, PricingEngine.class,
+                StockLedger.class, InventoryLoader.class, PurchaseJournal.class, InventoryService.class);
+        context.refresh();
+        inventoryService = context.getBean(InventoryService.class);
+
+        items = createItems(inventorySize);
+        itemIds = items.stream().map(Item::getUuid).toArray(UUID[]::new);
+        inventoryService.refreshInventory(items);
+
+        int views = SURGE_SIZE * windowFillPercent / 100;
+        for (UUID itemId : itemIds) {
+            for (int i = 0; i < views; i++) {
+                inventoryService.getItem(itemId);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Item getItem() {
+        return inventoryService.getItem(randomItemId());
+    }
+
+    @Benchmark
+    public Item purchaseItem() {
+        return inventoryService.purchaseItem(randomItemId(), 1);
+    }
+
+    @Benchmark
+    public List<Item> getInventory() {
+        return inventoryService.getInventory();
+    }
+
+    @Benchmark
+    public List<Item> refreshInventory() {
+        inventoryService.refreshInventory(items);
+        return items;
+    }
+
+    private UUID randomItemId() {
+        return itemIds[ThreadLocalRandom.current().nextInt(itemIds.length)];
+    }
+
+    private static List<Item> createItems(int size) {
+        Random random = new Random(size);
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(Item.builder()
+                    .uuid(new UUID(random.nextLong(), random.nextLong()))
+                    .name("Item " + i)
+                    .description("Benchmark item " + i)
+                    .price(1 + random.nextInt(100))
+                    .quantity(Integer.MAX_VALUE)
+                    .build());
+        }
+        return items;
+    }
+}
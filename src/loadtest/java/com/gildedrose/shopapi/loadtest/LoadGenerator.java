@@ -0,0 +1,162 @@
+package com.gildedrose.shopapi.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonParser;
+
+/**
+ * Sends the storefront mix to a running application at a fixed rate.
+ *
+ * Requests are scheduled at even intervals and handed to a pool of client threads, and the latency of each
+ * request is measured from the time it was due rather than the time it was sent. A server that falls behind
+ * therefore shows up as queueing in the latency, instead of slowing the generator down and hiding the delay.
+ */
+final class LoadGenerator {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+
+    private final LoadTestSettings settings;
+    private final String baseUrl;
+    private final String authorization;
+    private final List<LoadTestItem> catalogue;
+    private final ZipfDistribution popularity;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    LoadGenerator(LoadTestSettings settings, String baseUrl, String user, String password, List<LoadTestItem> catalogue) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.authorization = "Basic " + BaseEncoding.base64()
+                .encode((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.catalogue = catalogue;
+        this.popularity = new ZipfDistribution(catalogue.size(), settings.getZipfExponent());
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Sends requests for the warmup and then the measured duration, and waits for them to complete.
+     */
+    void run() throws InterruptedException {
+        AtomicInteger clients = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 0,
+                TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "loadtest-client-" + clients.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Random random = new Random();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(settings.getWarmupMillis());
+        long requests = (settings.getWarmupMillis() + settings.getDurationMillis()) * settings.getRate() / 1000;
+        for (long request = 0; request < requests; request++) {
+            long due = start + request * TimeUnit.SECONDS.toNanos(1) / settings.getRate();
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = settings.pickOperation(random);
+            LoadTestItem item = catalogue.get(popularity.sample(random));
+            executor.execute(() -> send(operation, item, due, due >= measureFrom));
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+        }
+    }
+
+    Map<Operation, OperationStats> getStats() {
+        return stats;
+    }
+
+    private void send(Operation operation, LoadTestItem item, long due, boolean measured) {
+        boolean error = false;
+        boolean rejection = false;
+        try {
+            switch (operation) {
+                case INVENTORY:
+                    error = request("GET", "/inventory", false).status != HttpURLConnection.HTTP_OK;
+                    break;
+                case ITEM:
+                    Response view = request("GET", "/item/" + item.getUuid(), false);
+                    if (view.status == HttpURLConnection.HTTP_OK) {
+                        item.recordView(new JsonParser().parse(view.body).getAsJsonObject().get("price").getAsInt());
+                    } else {
+                        item.recordFailedView();
+                        error = true;
+                    }
+                    break;
+                default:
+                    Response purchase = request("POST", "/item/" + item.getUuid() + "?quantity=1", true);
+                    if (purchase.status == HttpURLConnection.HTTP_OK) {
+                        item.recordPurchase();
+                    } else if (purchase.status == HttpURLConnection.HTTP_BAD_REQUEST) {
+                        item.recordRejectedPurchase();
+                        rejection = true;
+                    } else {
+                        item.recordFailedPurchase();
+                        error = true;
+                    }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (operation == Operation.ITEM) {
+                item.recordFailedView();
+            } else if (operation == Operation.PURCHASE) {
+                item.recordFailedPurchase();
+            }
+            error = true;
+        }
+        if (measured) {
+            stats.get(operation).record(System.nanoTime() - due, error, rejection);
+        }
+    }
+
+    private Response request(String method, String path, boolean authenticated) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setRequestProperty("Accept", "application/json");
+        if (authenticated) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        int status = connection.getResponseCode();
+        // The whole body is read so the connection can be reused
+        InputStream body = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+        if (body == null) {
+            return new Response(status, "");
+        }
+        try (InputStream in = body) {
+            return new Response(status, new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class Response {
+
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
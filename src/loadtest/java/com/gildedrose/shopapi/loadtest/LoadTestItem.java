@@ -0,0 +1,94 @@
+package com.gildedrose.shopapi.loadtest;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An item of the generated catalogue, and the outcome of every request made for it during the load test.
+ */
+final class LoadTestItem {
+
+    private final UUID uuid;
+    private final int price;
+    private final int stock;
+
+    private final AtomicInteger basePriceViews = new AtomicInteger();
+    private final AtomicInteger surgePriceViews = new AtomicInteger();
+    private final AtomicInteger otherPriceViews = new AtomicInteger();
+    private final AtomicInteger failedViews = new AtomicInteger();
+    private final AtomicInteger sold = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger failedPurchases = new AtomicInteger();
+
+    LoadTestItem(UUID uuid, int price, int stock) {
+        this.uuid = uuid;
+        this.price = price;
+        this.stock = stock;
+    }
+
+    void recordView(int viewedPrice) {
+        if (viewedPrice == price) {
+            basePriceViews.incrementAndGet();
+        } else if (viewedPrice > price) {
+            surgePriceViews.incrementAndGet();
+        } else {
+            otherPriceViews.incrementAndGet();
+        }
+    }
+
+    void recordFailedView() {
+        failedViews.incrementAndGet();
+    }
+
+    void recordPurchase() {
+        sold.incrementAndGet();
+    }
+
+    void recordRejectedPurchase() {
+        rejected.incrementAndGet();
+    }
+
+    void recordFailedPurchase() {
+        failedPurchases.incrementAndGet();
+    }
+
+    UUID getUuid() {
+        return uuid;
+    }
+
+    int getPrice() {
+        return price;
+    }
+
+    int getStock() {
+        return stock;
+    }
+
+    int getViews() {
+        return basePriceViews.get() + surgePriceViews.get() + otherPriceViews.get();
+    }
+
+    int getBasePriceViews() {
+        return basePriceViews.get();
+    }
+
+    int getSurgePriceViews() {
+        return surgePriceViews.get();
+    }
+
+    int getFailedViews() {
+        return failedViews.get();
+    }
+
+    int getSold() {
+        return sold.get();
+    }
+
+    int getRejected() {
+        return rejected.get();
+    }
+
+    int getFailedPurchases() {
+        return failedPurchases.get();
+    }
+}
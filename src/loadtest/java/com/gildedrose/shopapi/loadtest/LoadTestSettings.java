@@ -0,0 +1,120 @@
+package com.gildedrose.shopapi.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The load test settings, read from {@code loadtest.*} system properties.
+ *
+ * The mix ({@code loadtest.mix}) is a comma separated list of {@code operation:weight} pairs, e.g.
+ * {@code inventory:5,item:80,purchase:15}, and requests are sent at {@code loadtest.rate} per second
+ * whether or not earlier requests have completed.
+ */
+final class LoadTestSettings {
+
+    private final int rate;
+    private final long warmupMillis;
+    private final long durationMillis;
+    private final int threads;
+    private final int items;
+    private final int stock;
+    private final double zipfExponent;
+    private final Map<Operation, Integer> mix;
+    private final int totalWeight;
+
+    private LoadTestSettings(int rate, long warmupMillis, long durationMillis, int threads, int items, int stock,
+                             double zipfExponent, Map<Operation, Integer> mix) {
+        if (rate <= 0 || durationMillis <= 0 || warmupMillis < 0 || threads <= 0 || items <= 0 || stock < 0) {
+            throw new IllegalArgumentException("The rate, duration, threads and items must be positive and the warmup and stock must not be negative");
+        }
+        this.rate = rate;
+        this.warmupMillis = warmupMillis;
+        this.durationMillis = durationMillis;
+        this.threads = threads;
+        this.items = items;
+        this.stock = stock;
+        this.zipfExponent = zipfExponent;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The mix must have a positive weight");
+        }
+    }
+
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.rate", 200),
+                TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.warmup.s", 10)),
+                TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.duration.s", 60)),
+                Integer.getInteger("loadtest.threads", 64),
+                Integer.getInteger("loadtest.items", 1000),
+                Integer.getInteger("loadtest.stock", 100),
+                Double.parseDouble(System.getProperty("loadtest.zipf.exponent", "1.0")),
+                parseMix(System.getProperty("loadtest.mix", "inventory:5,item:80,purchase:15")));
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("Invalid load test mix entry " + entry);
+            }
+            int value = Integer.parseInt(weight[1].trim());
+            if (value < 0) {
+                throw new IllegalArgumentException("Load test mix weights must not be negative");
+            }
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase(Locale.ROOT)), value);
+        }
+        return weights;
+    }
+
+    /**
+     * Picks the next operation in proportion to its weight in the mix.
+     */
+    Operation pickOperation(Random random) {
+        int pick = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> weight : mix.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("The mix weights changed");
+    }
+
+    int getRate() {
+        return rate;
+    }
+
+    long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    long getDurationMillis() {
+        return durationMillis;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    int getItems() {
+        return items;
+    }
+
+    int getStock() {
+        return stock;
+    }
+
+    double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    Map<Operation, Integer> getMix() {
+        return mix;
+    }
+}
@@ -0,0 +1,22 @@
+package com.gildedrose.shopapi.loadtest;
+
+/**
+ * The storefront requests replayed by the load test.
+ */
+enum Operation {
+
+    /**
+     * GET the whole inventory.
+     */
+    INVENTORY,
+
+    /**
+     * GET an item, chosen by popularity.
+     */
+    ITEM,
+
+    /**
+     * POST an authenticated purchase of one unit of an item, chosen by popularity.
+     */
+    PURCHASE
+}
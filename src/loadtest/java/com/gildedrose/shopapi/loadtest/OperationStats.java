@@ -0,0 +1,48 @@
+package com.gildedrose.shopapi.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * The requests, errors and latency of one operation once the warmup is over.
+ */
+final class OperationStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Recorder latency = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Records a completed request, with its latency from the time it was due to be sent.
+     */
+    void record(long latencyNanos, boolean error, boolean rejection) {
+        requests.incrementAndGet();
+        if (error) {
+            errors.incrementAndGet();
+        } else if (rejection) {
+            rejected.incrementAndGet();
+        }
+        latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+    }
+
+    Histogram getLatency() {
+        return latency.getIntervalHistogram();
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+}
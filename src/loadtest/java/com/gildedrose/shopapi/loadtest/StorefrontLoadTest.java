@@ -0,0 +1,198 @@
+package com.gildedrose.shopapi.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import com.gildedrose.shopapi.Application;
+import com.google.gson.stream.JsonWriter;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+/**
+ * Starts the application on a random port with a generated catalogue, replays the storefront mix against it
+ * and reports the throughput, latency and errors of each operation.
+ *
+ * Run with {@code ./gradlew loadTest}, passing {@code -Ploadtest.*} settings (see {@link LoadTestSettings}) and
+ * any {@code -Pgildedrose.*} application properties to test, e.g. {@code -Pgildedrose.api.mode=async}. Once the
+ * requests have completed the outcome of every request is checked against the catalogue:
+ * <ul>
+ * <li>no item is sold beyond its stock, and purchases are only rejected once an item has sold out</li>
+ * <li>each item is viewed at its catalogue price until it passes the first surge tier, and at a surge price after,
+ * give or take the views in flight when it passed</li>
+ * </ul>
+ * The run fails if either check fails.
+ */
+public final class StorefrontLoadTest {
+
+    private static final String[] PERCENTILE_LABELS = {"p50", "p99", "p99.9", "max"};
+    private static final double[] PERCENTILES = {50, 99, 99.9, 100};
+
+    private StorefrontLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        List<LoadTestItem> catalogue = createCatalogue(settings);
+        Path inventoryFile = writeInventory(catalogue);
+
+        // Set as system properties so they take precedence over the application properties, unless given already
+        long runMillis = settings.getWarmupMillis() + settings.getDurationMillis();
+        setDefault("server.port", "0");
+        setDefault("gildedrose.inventory.location", inventoryFile.toString());
+        setDefault("gildedrose.surge.window.ms", String.valueOf(runMillis + TimeUnit.MINUTES.toMillis(5)));
+        setDefault("logging.level.root", "WARN");
+        setDefault("http.maxConnections", String.valueOf(settings.getThreads()));
+
+        boolean passed;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(args)) {
+            Environment environment = context.getEnvironment();
+            String baseUrl = "http://localhost:" + environment.getProperty("local.server.port")
+                    + environment.getProperty("gildedrose.application.contextPath");
+            LoadGenerator generator = new LoadGenerator(settings, baseUrl, environment.getProperty("security.user.name"),
+                    environment.getProperty("security.user.password"), catalogue);
+
+            System.out.printf("Sending %d requests/s to %s for %d s after a %d s warmup%n", settings.getRate(), baseUrl,
+                    TimeUnit.MILLISECONDS.toSeconds(settings.getDurationMillis()),
+                    TimeUnit.MILLISECONDS.toSeconds(settings.getWarmupMillis()));
+            long start = System.nanoTime();
+            generator.run();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            printStats(generator.getStats(), settings.getDurationMillis());
+            passed = checkStock(catalogue);
+            long windowMillis = environment.getProperty("gildedrose.surge.window.ms", Long.class);
+            if (windowMillis > elapsedMillis) {
+                passed &= checkSurge(catalogue, firstSurgeTier(environment.getProperty("gildedrose.surge.tiers")),
+                        settings.getThreads());
+            } else {
+                System.out.println("Surge pricing: not checked, as views left the surge window during the run");
+            }
+        } finally {
+            Files.deleteIfExists(inventoryFile);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static List<LoadTestItem> createCatalogue(LoadTestSettings settings) {
+        Random random = new Random(settings.getItems());
+        List<LoadTestItem> catalogue = new ArrayList<>(settings.getItems());
+        for (int i = 0; i < settings.getItems(); i++) {
+            // Prices start at 10, so any surge multiplier of 5% or more changes them
+            catalogue.add(new LoadTestItem(UUID.randomUUID(), 10 + random.nextInt(990), settings.getStock()));
+        }
+        return catalogue;
+    }
+
+    private static Path writeInventory(List<LoadTestItem> catalogue) throws IOException {
+        Path inventoryFile = Files.createTempFile("loadtest-inventory", ".json");
+        try (Writer writer = Files.newBufferedWriter(inventoryFile, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(writer)) {
+            json.beginObject().name("items").beginArray();
+            int number = 0;
+            for (LoadTestItem item : catalogue) {
+                json.beginObject()
+                        .name("uuid").value(item.getUuid().toString())
+                        .name("name").value("Load test item " + ++number)
+                        .name("description").value("An item of popularity rank " + number)
+                        .name("price").value(item.getPrice())
+                        .name("quantity").value(item.getStock())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        }
+        return inventoryFile;
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private static int firstSurgeTier(String tiers) {
+        return Integer.parseInt(tiers.split(",")[0].split(":")[0].trim());
+    }
+
+    private static void printStats(Map<Operation, OperationStats> stats, long durationMillis) {
+        System.out.printf("%n%-10s %10s %10s %9s %9s", "operation", "requests", "req/s", "errors", "rejected");
+        for (String label : PERCENTILE_LABELS) {
+            System.out.printf(" %9s", label + " ms");
+        }
+        System.out.println();
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            Histogram latency = operationStats.getLatency();
+            System.out.printf("%-10s %10d %10.1f %8.2f%% %8.2f%%", entry.getKey().name().toLowerCase(Locale.ROOT),
+                    operationStats.getRequests(), operationStats.getRequests() * 1000.0 / durationMillis,
+                    percentage(operationStats.getErrors(), operationStats.getRequests()),
+                    percentage(operationStats.getRejected(), operationStats.getRequests()));
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %9.2f", latency.getValueAtPercentile(percentile) / 1000.0);
+            }
+            System.out.println();
+        }
+        System.out.println();
+    }
+
+    private static double percentage(long count, long total) {
+        return total > 0 ? count * 100.0 / total : 0;
+    }
+
+    private static boolean checkStock(List<LoadTestItem> catalogue) {
+        int oversold = 0;
+        int rejectedInStock = 0;
+        long sold = 0;
+        for (LoadTestItem item : catalogue) {
+            sold += item.getSold();
+            if (item.getSold() > item.getStock()) {
+                oversold++;
+            }
+            // A failed purchase may still have been made, so the rejection can only be checked without failures
+            if (item.getRejected() > 0 && item.getFailedPurchases() == 0 && item.getSold() < item.getStock()) {
+                rejectedInStock++;
+            }
+        }
+        boolean passed = oversold == 0 && rejectedInStock == 0;
+        System.out.printf("Stock: %s, %d units sold, %d items oversold, %d items rejected purchases while in stock%n",
+                passed ? "OK" : "FAILED", sold, oversold, rejectedInStock);
+        return passed;
+    }
+
+    // Views that race the one that starts a surge can be priced either side of it, at most one per request thread
+    private static boolean checkSurge(List<LoadTestItem> catalogue, int surgeViews, int threads) {
+        int checked = 0;
+        int surging = 0;
+        int mispriced = 0;
+        for (LoadTestItem item : catalogue) {
+            // Views that failed may still have been counted, so only items without failures are checked
+            if (item.getFailedViews() > 0) {
+                continue;
+            }
+            checked++;
+            int basePriceViews = Math.min(item.getViews(), surgeViews);
+            int tolerance = item.getViews() > surgeViews ? threads : 0;
+            if (Math.abs(item.getBasePriceViews() - basePriceViews) > tolerance
+                    || item.getSurgePriceViews() != item.getViews() - item.getBasePriceViews()) {
+                mispriced++;
+            }
+            if (item.getViews() > surgeViews) {
+                surging++;
+            }
+        }
+        boolean passed = mispriced == 0;
+        System.out.printf("Surge pricing: %s, %d items checked, %d in surge, %d mispriced%n",
+                passed ? "OK" : "FAILED", checked, surging, mispriced);
+        return passed;
+    }
+}
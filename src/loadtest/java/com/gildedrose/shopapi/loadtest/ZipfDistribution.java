@@ -0,0 +1,36 @@
+package com.gildedrose.shopapi.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks item ranks so that the item of rank k is chosen in proportion to 1 / k^exponent, the popularity
+ * of items in a storefront where a few items take most of the traffic.
+ */
+final class ZipfDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int size, double exponent) {
+        if (size <= 0 || exponent < 0) {
+            throw new IllegalArgumentException("The size must be positive and the exponent must not be negative");
+        }
+        cumulative = new double[size];
+        double total = 0;
+        for (int rank = 0; rank < size; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+
+    /**
+     * Returns a rank from 0, the most popular, to one less than the size.
+     */
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
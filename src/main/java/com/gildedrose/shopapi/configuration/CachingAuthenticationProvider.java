@@ -0,0 +1,92 @@
+package com.gildedrose.shopapi.configuration;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Remembers successful username and password authentications for a while, so repeat requests with the same
+ * credentials skip the password check of the delegate.
+ *
+ * Entries are keyed on a salted SHA-256 of the username and password, so a different password never matches
+ * and the cache does not hold the credentials themselves. Failed authentications are not cached. A user whose
+ * password is changed or who is removed can still authenticate with the old credentials until their entry
+ * expires, so the time to live bounds how long such a change takes to apply.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider, MeterBinder {
+
+    private final AuthenticationManager delegate;
+    private final Cache<HashCode, Authentication> authentications;
+    private final byte[] salt = new byte[16];
+
+    public CachingAuthenticationProvider(AuthenticationManager delegate, long maximumSize, long timeToLiveMillis) {
+        this(delegate, maximumSize, timeToLiveMillis, Ticker.systemTicker());
+    }
+
+    CachingAuthenticationProvider(AuthenticationManager delegate, long maximumSize, long timeToLiveMillis, Ticker ticker) {
+        this.delegate = delegate;
+        this.authentications = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        HashCode key = key(authentication);
+        Authentication cached = authentications.getIfPresent(key);
+        if (cached == null) {
+            cached = delegate.authenticate(authentication);
+            authentications.put(key, cached);
+        }
+
+        // The request details (remote address, session) belong to this request rather than the cached one
+        UsernamePasswordAuthenticationToken result = new UsernamePasswordAuthenticationToken(
+                cached.getPrincipal(), null, cached.getAuthorities());
+        result.setDetails(authentication.getDetails());
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        GuavaCacheMetrics.monitor(registry, authentications, "gildedrose.authentication");
+    }
+
+    public CacheStats getStats() {
+        return authentications.stats();
+    }
+
+    private HashCode key(Authentication authentication) {
+        return Hashing.sha256().newHasher()
+                .putBytes(salt)
+                .putString(authentication.getName(), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(authentication.getCredentials().toString(), StandardCharsets.UTF_8)
+                .hash();
+    }
+}
@@ -1,22 +1,69 @@
 package com.gildedrose.shopapi.configuration;
 
+import java.util.Collections;
+import javax.annotation.PostConstruct;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 
 @Configuration
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
+    @Autowired
+    private SecurityProperties securityProperties;
+
+    @Value("${gildedrose.authentication.cache.size}")
+    private long authenticationCacheSize;
+
+    @Value("${gildedrose.authentication.cache.ttl.ms}")
+    private long authenticationCacheTimeToLive;
+
+    // Not a bean, as Spring Security would install an AuthenticationProvider bean into the global manager it wraps
+    private CachingAuthenticationProvider cachingAuthenticationProvider;
+
+    @PostConstruct
+    public void init() {
+        SecurityProperties.User user = securityProperties.getUser();
+        DaoAuthenticationProvider users = new DaoAuthenticationProvider();
+        users.setUserDetailsService(new InMemoryUserDetailsManager(Collections.singletonList(User.withUsername(user.getName())
+                .password(user.getPassword())
+                .roles(user.getRole().toArray(new String[0]))
+                .build())));
+        cachingAuthenticationProvider = new CachingAuthenticationProvider(new ProviderManager(Collections.singletonList(users)),
+                authenticationCacheSize, authenticationCacheTimeToLive);
+    }
+
+    @Bean
+    public MeterBinder authenticationCacheMetrics() {
+        return registry -> cachingAuthenticationProvider.bindTo(registry);
+    }
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+        auth.authenticationProvider(cachingAuthenticationProvider);
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.httpBasic()
                 .and()
                 .authorizeRequests()
                 .antMatchers(HttpMethod.POST, "/api/gildedrose/1/item/**").fullyAuthenticated()
+                .antMatchers(HttpMethod.POST, "/api/gildedrose/1/basket").fullyAuthenticated()
                 .and()
                 .csrf().disable();
     }
-}
\ No newline at end of file
+}
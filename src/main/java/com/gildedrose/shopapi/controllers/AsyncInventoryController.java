@@ -0,0 +1,158 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import com.gildedrose.shopapi.controllers.InventoryResponseCache.SerializedInventory;
+import com.gildedrose.shopapi.domain.Basket;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.Order;
+import com.gildedrose.shopapi.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import static com.gildedrose.shopapi.controllers.InventoryController.ENDPOINT_PATH_BASKET;
+import static com.gildedrose.shopapi.controllers.InventoryController.ENDPOINT_PATH_INVENTORY;
+import static com.gildedrose.shopapi.controllers.InventoryController.ENDPOINT_PATH_ITEM;
+
+/**
+ * Serves the requests that wait without holding a request thread ({@code gildedrose.api.mode=async}).
+ *
+ * Purchases are answered from the purchase journal's writer thread once they are durable, and clients can
+ * long poll the inventory: a request with {@code wait=true} and the ETag of the current inventory in
+ * If-None-Match is held until a new inventory version is published, or answered 304 Not Modified when
+ * the long poll timeout passes. Other inventory and item requests are answered from memory by
+ * {@link InventoryController} in both modes.
+ */
+@RestController
+@ConditionalOnProperty(name = "gildedrose.api.mode", havingValue = "async")
+public class AsyncInventoryController {
+
+    @Value("${gildedrose.api.longpoll.timeout.ms}")
+    private long longPollTimeoutMillis;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryResponseCache inventoryResponseCache;
+
+    private final Set<InventoryPoll> polls = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        // The new inventory is serialized off the publishing thread
+        inventoryService.addInventoryListener(snapshot -> {
+            if (!polls.isEmpty()) {
+                CompletableFuture.runAsync(() -> polls.forEach(this::completePoll));
+            }
+        });
+    }
+
+    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_INVENTORY, method = RequestMethod.GET,
+            params = "wait=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<byte[]>> pollInventory(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                                HttpServletResponse response) throws IOException {
+        if (inventoryService.isListedByPage()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The inventory can only be listed by page");
+            return null;
+        }
+        SerializedInventory inventory = inventoryResponseCache.getInventory();
+        String currentETag = InventoryResponses.eTag(inventory, acceptEncoding);
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(longPollTimeoutMillis,
+                ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentETag)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build());
+        if (!InventoryResponses.matchesETag(ifNoneMatch, currentETag)) {
+            result.setResult(inventoryResponse(inventory, acceptEncoding));
+            return result;
+        }
+
+        InventoryPoll poll = new InventoryPoll(result, acceptEncoding);
+        polls.add(poll);
+        result.onCompletion(() -> polls.remove(poll));
+        // Answer straight away if a new version was published while the poll was being registered
+        if (inventoryService.getInventoryVersion() != inventory.getVersion()) {
+            completePoll(poll);
+        }
+        return result;
+    }
+
+    private void completePoll(InventoryPoll poll) {
+        try {
+            poll.result.setResult(inventoryResponse(inventoryResponseCache.getInventory(), poll.acceptEncoding));
+        } catch (IOException e) {
+            poll.result.setErrorResult(e);
+        }
+    }
+
+    private static ResponseEntity<byte[]> inventoryResponse(SerializedInventory inventory, String acceptEncoding) {
+        return InventoryResponses.inventoryResponse(ResponseEntity.ok().eTag(InventoryResponses.eTag(inventory, acceptEncoding)),
+                inventory, acceptEncoding);
+    }
+
+    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_ITEM + "/{itemId}", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<Item>> purchaseItem(@PathVariable String itemId, @RequestParam String quantity,
+                                                             HttpServletResponse response) throws IOException {
+        CompletableFuture<Item> purchase;
+        try {
+            purchase = inventoryService.purchaseItemAsync(UUID.fromString(itemId), Integer.parseInt(quantity));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unable to find item from request");
+            return null;
+        }
+        return purchaseResult(purchase, "The item is not currently available or there are insufficient items for your request");
+    }
+
+    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_BASKET, method = RequestMethod.POST,
+            consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<Order>> purchaseBasket(@RequestBody Basket basket) {
+        CompletableFuture<Order> purchase = basket.getItems() != null
+                ? inventoryService.purchaseItemsAsync(basket.getItems())
+                : CompletableFuture.completedFuture(null);
+        return purchaseResult(purchase, "One or more items are not currently available or there are insufficient items for your request");
+    }
+
+    private static <T> DeferredResult<ResponseEntity<T>> purchaseResult(CompletableFuture<T> purchase, String rejection) {
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>();
+        purchase.whenComplete((purchased, e) -> {
+            if (e != null) {
+                result.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            } else if (purchased == null) {
+                result.setErrorResult(new PurchaseRejectedException(rejection));
+            } else {
+                result.setResult(ResponseEntity.ok(purchased));
+            }
+        });
+        return result;
+    }
+
+    private static class InventoryPoll {
+
+        private final DeferredResult<ResponseEntity<byte[]>> result;
+        private final String acceptEncoding;
+
+        InventoryPoll(DeferredResult<ResponseEntity<byte[]>> result, String acceptEncoding) {
+            this.result = result;
+            this.acceptEncoding = acceptEncoding;
+        }
+    }
+}
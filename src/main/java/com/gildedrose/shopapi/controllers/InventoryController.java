@@ -3,12 +3,15 @@ package com.gildedrose.shopapi.controllers;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
-import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import com.gildedrose.shopapi.controllers.InventoryResponseCache.SerializedInventory;
 import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.service.InventoryOrder;
 import com.gildedrose.shopapi.service.InventoryService;
 import lombok.extern.apachecommons.CommonsLog;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -16,6 +19,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @CommonsLog
@@ -23,19 +27,64 @@ public class InventoryController {
 
     public static final String ENDPOINT_PATH_INVENTORY = "/inventory";
     public static final String ENDPOINT_PATH_ITEM = "/item";
+    public static final String ENDPOINT_PATH_BASKET = "/basket";
+    public static final String ENDPOINT_PATH_EVENTS = ENDPOINT_PATH_INVENTORY + "/events";
 
+    @Value("${gildedrose.inventory.page.size}")
+    private int defaultPageSize;
+
+    @Value("${gildedrose.inventory.page.max}")
+    private int maxPageSize;
 
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private InventoryResponseCache inventoryResponseCache;
+
     @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_INVENTORY,  method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<Item>> getInventory() throws IOException {
-        return ResponseEntity.ok(inventoryService.getInventory());
+    public ResponseEntity<?> getInventory(@RequestParam(required = false) String order,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String fields,
+                                          WebRequest request, HttpServletResponse response) throws IOException {
+        // An inventory that is only listed by page answers with its first page and a link to the next
+        if (InventoryResponses.isPageRequest(order, cursor, limit, fields) || inventoryService.isListedByPage()) {
+            return getInventoryPage(order, cursor, limit, fields, response);
+        }
+
+        SerializedInventory inventory = inventoryResponseCache.getInventory();
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+
+        // Sets the ETag and answers 304 Not Modified when the client already has this version, in this encoding
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (request.checkNotModified(InventoryResponses.eTag(inventory, acceptEncoding))) {
+            return null;
+        }
+        return InventoryResponses.inventoryResponse(ResponseEntity.ok(), inventory, acceptEncoding);
+    }
+
+    private ResponseEntity<?> getInventoryPage(String order, String cursor, Integer limit, String fields,
+                                               HttpServletResponse response) throws IOException {
+        try {
+            InventoryOrder inventoryOrder = InventoryResponses.parseOrder(order);
+            int pageSize = InventoryResponses.getPageSize(limit, defaultPageSize, maxPageSize);
+            List<String> projection = InventoryResponses.parseFields(fields);
+
+            return InventoryResponses.pageResponse(inventoryService.getInventoryPage(inventoryOrder, cursor, pageSize), projection);
+
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid inventory page request");
+        }
+        return null;
     }
 
     @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_INVENTORY,  method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<Item>> refreshInventory() throws IOException {
+    public ResponseEntity<?> refreshInventory() throws IOException {
         inventoryService.refreshInventory();
+        if (inventoryService.isListedByPage()) {
+            return InventoryResponses.pageResponse(inventoryService.getInventoryPage(InventoryOrder.UUID, null, defaultPageSize), null);
+        }
         return ResponseEntity.ok(inventoryService.getInventory());
     }
 
@@ -56,24 +105,4 @@ public class InventoryController {
         }
         return null;
     }
-
-    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_ITEM + "/{itemId}", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Item> purchaseItem(@PathVariable String itemId, @RequestParam String quantity, HttpServletRequest request,
-                                        HttpServletResponse response) throws Exception {
-        try {
-            UUID itemUuid = UUID.fromString(itemId);
-            Item item = inventoryService.purchaseItem(itemUuid, Integer.parseInt(quantity));
-
-            if (item != null) {
-                return ResponseEntity.ok(item);
-            } else {
-                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The item is not currently available or there are insufficient items for your request");
-            }
-
-        } catch (IllegalArgumentException e) {
-            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unable to find item from request");
-        }
-        return null;
-    }
-
 }
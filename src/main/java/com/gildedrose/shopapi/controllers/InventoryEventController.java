@@ -0,0 +1,215 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.ItemUpdate;
+import com.gildedrose.shopapi.service.InventoryService;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static com.gildedrose.shopapi.controllers.InventoryController.ENDPOINT_PATH_EVENTS;
+
+/**
+ * Streams the changes to item prices and stock levels as server-sent events, so clients can follow them
+ * without polling the item endpoint, which records a view of the item.
+ *
+ * Changes are coalesced: the ids of the items changed by purchases and surge tier changes are collected while
+ * there are subscribers, and every {@code gildedrose.api.events.interval.ms} each changed item is sent once,
+ * at its current price and stock level, in a single {@code items} event. A new inventory version is sent as an
+ * {@code inventory} event with its version, as any item may have changed. A subscriber that lists the items it
+ * follows in {@code items} is only sent those, and is also sent them whenever a new inventory is published.
+ */
+@RestController
+@CommonsLog
+public class InventoryEventController {
+
+    static final String EVENT_INVENTORY = "inventory";
+    static final String EVENT_ITEMS = "items";
+
+    @Value("${gildedrose.api.events.interval.ms}")
+    private long intervalMillis;
+
+    @Value("${gildedrose.api.events.timeout.ms}")
+    private long timeoutMillis;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final Set<UUID> changedItems = ConcurrentHashMap.newKeySet();
+
+    // Only read and written by the publisher thread
+    private long publishedVersion;
+
+    private ScheduledExecutorService publisher;
+
+    @PostConstruct
+    public void init() {
+        publishedVersion = inventoryService.getInventoryVersion();
+        inventoryService.addItemListener(itemId -> {
+            if (!subscriptions.isEmpty()) {
+                changedItems.add(itemId);
+            }
+        });
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::publishEvents, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_EVENTS, method = RequestMethod.GET,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestParam(required = false) String items, HttpServletResponse response) throws IOException {
+        Set<UUID> itemIds = null;
+        if (items != null) {
+            try {
+                itemIds = Stream.of(items.split(","))
+                        .map(itemId -> UUID.fromString(itemId.trim()))
+                        .collect(Collectors.toSet());
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid items in request");
+                return null;
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(emitter, itemIds);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        // The subscriber starts from the current inventory, and its items as they are now
+        emitter.send(SseEmitter.event().name(EVENT_INVENTORY).data(String.valueOf(inventoryService.getInventoryVersion())));
+        if (itemIds != null) {
+            List<ItemUpdate> updates = getUpdates(itemIds);
+            if (!updates.isEmpty()) {
+                emitter.send(SseEmitter.event().name(EVENT_ITEMS).data(objectMapper.writeValueAsString(updates)));
+            }
+        }
+        subscriptions.add(subscription);
+        return emitter;
+    }
+
+    void publishEvents() {
+        try {
+            if (subscriptions.isEmpty()) {
+                // New subscribers are sent the current version when they subscribe
+                publishedVersion = inventoryService.getInventoryVersion();
+                changedItems.clear();
+                return;
+            }
+
+            long version = inventoryService.getInventoryVersion();
+            boolean published = version != publishedVersion;
+            if (published) {
+                publishedVersion = version;
+                subscriptions.forEach(subscription -> send(subscription, EVENT_INVENTORY, String.valueOf(version)));
+            }
+
+            Map<UUID, ItemUpdate> updates = new HashMap<>();
+            for (Iterator<UUID> changed = changedItems.iterator(); changed.hasNext(); ) {
+                UUID itemId = changed.next();
+                // Removed before the item is read, so a change made while it is read is sent in the next batch
+                changed.remove();
+                ItemUpdate update = getUpdate(itemId);
+                if (update != null) {
+                    updates.put(itemId, update);
+                }
+            }
+
+            String allUpdates = updates.isEmpty() ? null : objectMapper.writeValueAsString(updates.values());
+            for (Subscription subscription : subscriptions) {
+                if (subscription.itemIds == null) {
+                    if (allUpdates != null) {
+                        send(subscription, EVENT_ITEMS, allUpdates);
+                    }
+                } else {
+                    List<ItemUpdate> itemUpdates = published
+                            ? getUpdates(subscription.itemIds)
+                            : subscription.itemIds.stream().map(updates::get).filter(Objects::nonNull).collect(Collectors.toList());
+                    if (!itemUpdates.isEmpty()) {
+                        send(subscription, EVENT_ITEMS, objectMapper.writeValueAsString(itemUpdates));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to publish inventory events", e);
+        }
+    }
+
+    private List<ItemUpdate> getUpdates(Collection<UUID> itemIds) {
+        List<ItemUpdate> updates = new ArrayList<>(itemIds.size());
+        for (UUID itemId : itemIds) {
+            ItemUpdate update = getUpdate(itemId);
+            if (update != null) {
+                updates.add(update);
+            }
+        }
+        return updates;
+    }
+
+    // Items that are no longer stocked are left to the inventory event
+    private ItemUpdate getUpdate(UUID itemId) {
+        Item item = inventoryService.getCurrentItem(itemId);
+        return item != null ? new ItemUpdate(item.getUuid(), item.getPrice(), item.getQuantity()) : null;
+    }
+
+    private void send(Subscription subscription, String name, String data) {
+        try {
+            subscription.emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // The client has gone away or the stream has timed out
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+        }
+    }
+
+    private static class Subscription {
+
+        private final SseEmitter emitter;
+        private final Set<UUID> itemIds;
+
+        Subscription(SseEmitter emitter, Set<UUID> itemIds) {
+            this.emitter = emitter;
+            this.itemIds = itemIds;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gildedrose.shopapi.service.InventoryMetrics;
+import com.gildedrose.shopapi.service.InventoryService;
+import com.gildedrose.shopapi.service.InventorySnapshot;
+import com.google.common.hash.Hashing;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the serialized inventory response for the current inventory version.
+ *
+ * The inventory response only contains the catalogue (stock levels are not serialized), so it only
+ * changes when a new inventory version is published. Each version is serialized once: the first request
+ * to miss claims the version and serializes it, and concurrent requests wait for that serialization rather
+ * than repeat it. The gzipped and identity bodies are different representations, so each has its own ETag.
+ */
+@Component
+public class InventoryResponseCache {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InventoryMetrics inventoryMetrics;
+
+    private final AtomicReference<Serialization> cachedInventory = new AtomicReference<>();
+
+    public SerializedInventory getInventory() throws IOException {
+        InventorySnapshot snapshot = inventoryService.getInventorySnapshot();
+        while (true) {
+            Serialization serialization = cachedInventory.get();
+            // Versions only increase, so a newer version than the snapshot read is the current one
+            if (serialization != null && serialization.version >= snapshot.getVersion()) {
+                inventoryMetrics.recordResponseCache(true);
+                return serialization.await();
+            }
+            Serialization next = new Serialization(snapshot.getVersion());
+            if (cachedInventory.compareAndSet(serialization, next)) {
+                inventoryMetrics.recordResponseCache(false);
+                try {
+                    SerializedInventory serializedInventory = serialize(snapshot);
+                    next.serialized.complete(serializedInventory);
+                    return serializedInventory;
+                } catch (IOException | RuntimeException e) {
+                    // The next request serializes the version again
+                    cachedInventory.compareAndSet(next, null);
+                    next.serialized.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private SerializedInventory serialize(InventorySnapshot snapshot) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(snapshot.getItems());
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(json);
+        }
+
+        String hash = Hashing.murmur3_128().hashBytes(json).toString();
+        return new SerializedInventory(snapshot.getVersion(), "\"" + hash + "\"", "\"" + hash + "-gzip\"",
+                json, gzipped.toByteArray());
+    }
+
+    // The serialization of a version, claimed by the first request to miss it
+    private static class Serialization {
+
+        private final long version;
+        private final CompletableFuture<SerializedInventory> serialized = new CompletableFuture<>();
+
+        Serialization(long version) {
+            this.version = version;
+        }
+
+        SerializedInventory await() throws IOException {
+            try {
+                return serialized.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while the inventory was serialized", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Unable to serialize the inventory", e.getCause());
+            }
+        }
+    }
+
+    public static class SerializedInventory {
+
+        private final long version;
+        private final String eTag;
+        private final String gzipETag;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        SerializedInventory(long version, String eTag, String gzipETag, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.eTag = eTag;
+            this.gzipETag = gzipETag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getGzipETag() {
+            return gzipETag;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+    }
+}
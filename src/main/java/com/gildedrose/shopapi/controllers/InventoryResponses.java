@@ -0,0 +1,144 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.gildedrose.shopapi.controllers.InventoryResponseCache.SerializedInventory;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.service.InventoryOrder;
+import com.gildedrose.shopapi.service.InventoryPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Parses inventory requests and builds inventory responses for the blocking and asynchronous controllers.
+ */
+final class InventoryResponses {
+
+    private static final String GZIP_ENCODING = "gzip";
+    private static final String LINK_HEADER = "Link";
+    private static final List<String> ITEM_FIELDS = Arrays.asList("uuid", "name", "description", "price");
+    // Each quoted entity tag of an If-None-Match list, with its weak prefix, or the * wildcard
+    private static final Pattern ETAG_PATTERN = Pattern.compile("\\*|\\s*((W/)?(\"[^\"]*\"))\\s*,?");
+
+    private InventoryResponses() {
+    }
+
+    static boolean isPageRequest(String order, String cursor, Integer limit, String fields) {
+        return order != null || cursor != null || limit != null || fields != null;
+    }
+
+    static InventoryOrder parseOrder(String order) {
+        return order != null ? InventoryOrder.valueOf(order.toUpperCase(Locale.ROOT)) : InventoryOrder.UUID;
+    }
+
+    static int getPageSize(Integer limit, int defaultPageSize, int maxPageSize) {
+        int pageSize = limit != null ? Math.min(limit, maxPageSize) : defaultPageSize;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        return pageSize;
+    }
+
+    static List<String> parseFields(String fields) {
+        if (fields == null) {
+            return null;
+        }
+        List<String> projection = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!ITEM_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown item field " + name);
+            }
+            projection.add(name);
+        }
+        return projection;
+    }
+
+    /**
+     * Returns the page, with only the projected fields if there are any, and a link to the next page.
+     */
+    static ResponseEntity<?> pageResponse(InventoryPage page, List<String> projection) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .build()
+                    .toUriString();
+            builder.header(LINK_HEADER, "<" + nextPage + ">; rel=\"next\"");
+        }
+        return projection != null ? builder.body(project(page.getItems(), projection)) : builder.body(page.getItems());
+    }
+
+    /**
+     * Returns the ETag of the representation the client is sent, as the gzipped body has its own.
+     */
+    static String eTag(SerializedInventory inventory, String acceptEncoding) {
+        return acceptsGzip(acceptEncoding) ? inventory.getGzipETag() : inventory.getETag();
+    }
+
+    /**
+     * Returns whether the If-None-Match header matches the ETag, as {@code WebRequest.checkNotModified} does: the
+     * header is a list of entity tags that are compared weakly, ignoring any {@code W/} prefix, or {@code *}.
+     */
+    static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        Matcher matcher = ETAG_PATTERN.matcher(ifNoneMatch);
+        while (matcher.find()) {
+            if ("*".equals(matcher.group()) || opaqueTag.equals(matcher.group(3))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the serialized inventory, gzipped if the client accepts it.
+     */
+    static ResponseEntity<byte[]> inventoryResponse(ResponseEntity.BodyBuilder builder, SerializedInventory inventory,
+                                                    String acceptEncoding) {
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING)
+                    .body(inventory.getGzip());
+        }
+        return builder.body(inventory.getJson());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.contains(GZIP_ENCODING);
+    }
+
+    private static List<Map<String, Object>> project(List<Item> items, List<String> fields) {
+        List<Map<String, Object>> projected = new ArrayList<>(items.size());
+        for (Item item : items) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (String field : fields) {
+                switch (field) {
+                    case "uuid":
+                        values.put(field, item.getUuid());
+                        break;
+                    case "name":
+                        values.put(field, item.getName());
+                        break;
+                    case "description":
+                        values.put(field, item.getDescription());
+                        break;
+                    default:
+                        values.put(field, item.getPrice());
+                }
+            }
+            projected.add(values);
+        }
+        return projected;
+    }
+}
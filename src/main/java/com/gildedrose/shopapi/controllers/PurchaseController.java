@@ -0,0 +1,66 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import com.gildedrose.shopapi.domain.Basket;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.Order;
+import com.gildedrose.shopapi.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.gildedrose.shopapi.controllers.InventoryController.ENDPOINT_PATH_BASKET;
+import static com.gildedrose.shopapi.controllers.InventoryController.ENDPOINT_PATH_ITEM;
+
+/**
+ * Serves purchases on the request thread, waiting for each purchase to be journaled. This is the default
+ * ({@code gildedrose.api.mode=blocking}), see {@link AsyncInventoryController} for the asynchronous mode.
+ */
+@RestController
+@ConditionalOnProperty(name = "gildedrose.api.mode", havingValue = "blocking", matchIfMissing = true)
+public class PurchaseController {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_ITEM + "/{itemId}", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Item> purchaseItem(@PathVariable String itemId, @RequestParam String quantity, HttpServletRequest request,
+                                        HttpServletResponse response) throws Exception {
+        try {
+            UUID itemUuid = UUID.fromString(itemId);
+            Item item = inventoryService.purchaseItem(itemUuid, Integer.parseInt(quantity));
+
+            if (item != null) {
+                return ResponseEntity.ok(item);
+            } else {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The item is not currently available or there are insufficient items for your request");
+            }
+
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unable to find item from request");
+        }
+        return null;
+    }
+
+    @RequestMapping(value = "${gildedrose.application.contextPath}" + ENDPOINT_PATH_BASKET, method = RequestMethod.POST,
+            consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Order> purchaseBasket(@RequestBody Basket basket, HttpServletResponse response) throws Exception {
+        Order order = basket.getItems() != null ? inventoryService.purchaseItems(basket.getItems()) : null;
+
+        if (order != null) {
+            return ResponseEntity.ok(order);
+        } else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "One or more items are not currently available or there are insufficient items for your request");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.gildedrose.shopapi.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Answers an asynchronous purchase with 400 Bad Request when the items are unavailable or out of stock.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+class PurchaseRejectedException extends RuntimeException {
+
+    PurchaseRejectedException(String message) {
+        super(message);
+    }
+}
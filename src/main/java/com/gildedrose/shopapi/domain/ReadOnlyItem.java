@@ -0,0 +1,39 @@
+package com.gildedrose.shopapi.domain;
+
+import java.util.UUID;
+
+/**
+ * An item that cannot be modified, for an instance that is shared between requests. It is equal to an
+ * {@link Item} with the same fields, and is serialized the same way.
+ */
+public final class ReadOnlyItem extends Item {
+
+    public ReadOnlyItem(UUID uuid, String name, String description, int price, int quantity) {
+        super(uuid, name, description, price, quantity);
+    }
+
+    @Override
+    public void setUuid(UUID uuid) {
+        throw new UnsupportedOperationException("The item is read only");
+    }
+
+    @Override
+    public void setName(String name) {
+        throw new UnsupportedOperationException("The item is read only");
+    }
+
+    @Override
+    public void setDescription(String description) {
+        throw new UnsupportedOperationException("The item is read only");
+    }
+
+    @Override
+    public void setPrice(int price) {
+        throw new UnsupportedOperationException("The item is read only");
+    }
+
+    @Override
+    public void setQuantity(int quantity) {
+        throw new UnsupportedOperationException("The item is read only");
+    }
+}
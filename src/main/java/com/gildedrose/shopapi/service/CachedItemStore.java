@@ -0,0 +1,173 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import com.gildedrose.shopapi.domain.Item;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Holds only the ids of the items in memory and reads the items from the {@link InventoryRepository} through
+ * a bounded near cache, for catalogues that are larger than the heap.
+ *
+ * The ids are kept in an {@link IdTable} like those of the {@link CompactItemStore}, taking around 24 bytes an
+ * item. The near cache holds the items that were read most recently, up to a number of items or, if a size in
+ * bytes is given, up to their estimated size. The set of items is fixed when the store is loaded, but each item
+ * is read from the repository as it is when it is first read or after it was evicted, and every inventory
+ * version starts with an empty cache. Listing or sorting the items reads the whole catalogue, and sorting only
+ * keeps the sorted positions.
+ */
+final class CachedItemStore implements ItemStore {
+
+    // An item, its id and a cache entry, not counting the name and description
+    private static final int ITEM_BYTES = 200;
+    private static final int STRING_BYTES = 40;
+
+    private final InventoryRepository repository;
+    private final IdTable ids;
+    private final LoadingCache<UUID, Optional<Item>> items;
+
+    private CachedItemStore(InventoryRepository repository, IdTable ids, long maximumItems, long maximumBytes) {
+        this.repository = repository;
+        this.ids = ids;
+
+        CacheBuilder<Object, Object> cache = CacheBuilder.newBuilder();
+        if (maximumBytes > 0) {
+            cache.maximumWeight(maximumBytes).weigher((UUID itemId, Optional<Item> item) -> estimateBytes(item));
+        } else {
+            cache.maximumSize(maximumItems);
+        }
+        this.items = cache.build(new CacheLoader<UUID, Optional<Item>>() {
+            @Override
+            public Optional<Item> load(UUID itemId) throws IOException {
+                return Optional.ofNullable(repository.find(itemId));
+            }
+        });
+    }
+
+    /**
+     * Reads the ids of the items in the repository, caching up to maximumItems items, or maximumBytes of items
+     * if it is positive.
+     */
+    static CachedItemStore load(InventoryRepository repository, long maximumItems, long maximumBytes) throws IOException {
+        IdTable ids = new IdTable();
+        repository.load(item -> ids.add(item.getUuid()));
+        ids.trim();
+        return new CachedItemStore(repository, ids, maximumItems, maximumBytes);
+    }
+
+    @Override
+    public Item get(UUID itemId) {
+        if (ids.position(itemId) < 0) {
+            return null;
+        }
+        try {
+            // An item removed from the repository since the store was loaded is no longer stocked
+            return items.getUnchecked(itemId).orElse(null);
+        } catch (UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Collection<Item> getItems() {
+        List<Item> stocked = new ArrayList<>(ids.size());
+        read(stocked::add);
+        return stocked;
+    }
+
+    @Override
+    public Set<UUID> getItemIds() {
+        return ids.asSet();
+    }
+
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    // Items are dropped from the near cache as others are read, so their views are not kept either
+    @Override
+    public boolean holdsItems() {
+        return false;
+    }
+
+    // The items are sorted without their descriptions, which are not part of any order
+    @Override
+    public List<Item> sort(Comparator<Item> comparator) {
+        List<Item> sorted = new ArrayList<>(ids.size());
+        read(item -> sorted.add(new Item(item.getUuid(), item.getName(), null, item.getPrice(), item.getQuantity())));
+        sorted.sort(comparator);
+
+        int[] positions = new int[sorted.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = ids.position(sorted.get(i).getUuid());
+        }
+        return new ItemList(positions);
+    }
+
+    // Streams the items of this store from the repository, bypassing the cache
+    private void read(Consumer<Item> consumer) {
+        IdTable seen = new IdTable();
+        try {
+            repository.load(item -> {
+                if (ids.position(item.getUuid()) >= 0 && seen.add(item.getUuid())) {
+                    consumer.accept(item);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int estimateBytes(Optional<Item> item) {
+        if (!item.isPresent()) {
+            return ITEM_BYTES;
+        }
+        return ITEM_BYTES + estimateBytes(item.get().getName()) + estimateBytes(item.get().getDescription());
+    }
+
+    private static int estimateBytes(String text) {
+        return text != null ? STRING_BYTES + 2 * text.length() : 0;
+    }
+
+    // Sorted items read through the cache, by their position
+    private class ItemList extends AbstractList<Item> implements RandomAccess {
+
+        private final int[] positions;
+
+        ItemList(int[] positions) {
+            this.positions = positions;
+        }
+
+        @Override
+        public Item get(int index) {
+            UUID itemId = ids.get(positions[index]);
+            Item item = CachedItemStore.this.get(itemId);
+            if (item == null) {
+                throw new IllegalStateException("Inventory item " + itemId + " was removed from the repository");
+            }
+            return item;
+        }
+
+        @Override
+        public int size() {
+            return positions.length;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.gildedrose.shopapi.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * Holds items in primitive arrays, for catalogues that are too large to keep as a map of items.
+ *
+ * The fields of each item are kept in parallel arrays by position, and an item is found from its id through
+ * an {@link IdTable} of the positions. Names and descriptions are UTF-8 encoded into one shared byte array,
+ * with each distinct string stored once. An item takes around 50 bytes plus its distinct text, against around
+ * 150 bytes plus two strings for an {@link Item} and its id in a map. An {@link Item} is created each time one
+ * is read, so callers should not rely on getting the same instance.
+ */
+final class CompactItemStore implements ItemStore {
+
+    private static final int NO_TEXT = -1;
+
+    private final int size;
+    private final IdTable ids;
+    private final int[] prices;
+    private final int[] quantities;
+    private final int[] nameOffsets;
+    private final int[] nameLengths;
+    private final int[] descriptionOffsets;
+    private final int[] descriptionLengths;
+    private final byte[] text;
+
+    private CompactItemStore(Builder builder) {
+        ids = builder.ids;
+        ids.trim();
+        size = ids.size();
+        prices = Arrays.copyOf(builder.prices, size);
+        quantities = Arrays.copyOf(builder.quantities, size);
+        nameOffsets = Arrays.copyOf(builder.nameOffsets, size);
+        nameLengths = Arrays.copyOf(builder.nameLengths, size);
+        descriptionOffsets = Arrays.copyOf(builder.descriptionOffsets, size);
+        descriptionLengths = Arrays.copyOf(builder.descriptionLengths, size);
+        text = builder.arena.toByteArray();
+    }
+
+    @Override
+    public Item get(UUID itemId) {
+        int position = ids.position(itemId);
+        return position >= 0 ? getItem(position, itemId) : null;
+    }
+
+    @Override
+    public Collection<Item> getItems() {
+        return new ItemList(null);
+    }
+
+    @Override
+    public Set<UUID> getItemIds() {
+        return ids.asSet();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean holdsItems() {
+        return false;
+    }
+
+    // Only the positions of the sorted items are kept, so the ordered list does not hold on to any items
+    @Override
+    public List<Item> sort(Comparator<Item> comparator) {
+        Item[] sorted = new Item[size];
+        for (int position = 0; position < size; position++) {
+            sorted[position] = getItem(position);
+        }
+        Arrays.sort(sorted, comparator);
+
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = ids.position(sorted[i].getUuid());
+        }
+        return new ItemList(positions);
+    }
+
+    private Item getItem(int position) {
+        return getItem(position, ids.get(position));
+    }
+
+    private Item getItem(int position, UUID itemId) {
+        return new Item(itemId,
+                getText(nameOffsets[position], nameLengths[position]),
+                getText(descriptionOffsets[position], descriptionLengths[position]),
+                prices[position],
+                quantities[position]);
+    }
+
+    private String getText(int offset, int length) {
+        return getText(text, offset, length);
+    }
+
+    private static String getText(byte[] text, int offset, int length) {
+        return length != NO_TEXT ? new String(text, offset, length, StandardCharsets.UTF_8) : null;
+    }
+
+    // At most half full, so a probe always reaches an empty slot
+    private static int tableSize(int size) {
+        if (size > 1 << 29) {
+            throw new IllegalArgumentException("Too many distinct inventory texts for a compact store");
+        }
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    // Items by position, or in the order of the given positions
+    private class ItemList extends AbstractList<Item> implements RandomAccess {
+
+        private final int[] positions;
+
+        ItemList(int[] positions) {
+            this.positions = positions;
+        }
+
+        @Override
+        public Item get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return getItem(positions != null ? positions[index] : index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Adds items to growing arrays as they are read, so a catalogue is never held as items or in a map while
+     * its store is built.
+     */
+    static final class Builder implements ItemStore.Builder {
+
+        private final IdTable ids = new IdTable();
+        private int[] prices = new int[16];
+        private int[] quantities = new int[16];
+        private int[] nameOffsets = new int[16];
+        private int[] nameLengths = new int[16];
+        private int[] descriptionOffsets = new int[16];
+        private int[] descriptionLengths = new int[16];
+        private final TextArena arena = new TextArena();
+
+        @Override
+        public void add(Item item) {
+            if (item.getUuid() == null) {
+                throw new IllegalArgumentException("Inventory items must have a uuid");
+            }
+            int position = ids.position(item.getUuid());
+            if (position < 0) {
+                position = ids.size();
+                ids.add(item.getUuid());
+                if (position == prices.length) {
+                    grow(position);
+                }
+            }
+            set(position, item);
+        }
+
+        @Override
+        public Item get(UUID itemId) {
+            int position = ids.position(itemId);
+            return position >= 0 ? getItem(position) : null;
+        }
+
+        @Override
+        public boolean contains(UUID itemId) {
+            return ids.position(itemId) >= 0;
+        }
+
+        // The text of a replaced item is kept, it is only added again if it is unchanged
+        @Override
+        public void replaceAll(UnaryOperator<Item> function) {
+            for (int position = 0; position < ids.size(); position++) {
+                Item item = getItem(position);
+                Item replacement = function.apply(item);
+                if (replacement != item) {
+                    if (!item.getUuid().equals(replacement.getUuid())) {
+                        throw new IllegalArgumentException("An item cannot be replaced by one with another uuid");
+                    }
+                    set(position, replacement);
+                }
+            }
+        }
+
+        @Override
+        public ItemStore build() {
+            return new CompactItemStore(this);
+        }
+
+        private Item getItem(int position) {
+            return new Item(ids.get(position),
+                    getText(arena.bytes, nameOffsets[position], nameLengths[position]),
+                    getText(arena.bytes, descriptionOffsets[position], descriptionLengths[position]),
+                    prices[position],
+                    quantities[position]);
+        }
+
+        private void set(int position, Item item) {
+            prices[position] = item.getPrice();
+            quantities[position] = item.getQuantity();
+            long name = arena.add(item.getName());
+            nameOffsets[position] = (int) (name >>> 32);
+            nameLengths[position] = (int) name;
+            long description = arena.add(item.getDescription());
+            descriptionOffsets[position] = (int) (description >>> 32);
+            descriptionLengths[position] = (int) description;
+        }
+
+        private void grow(int size) {
+            int capacity = size + (size >> 1);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+            descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+            descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        }
+    }
+
+    /**
+     * Appends each distinct string once, returning its offset and encoded length packed into a long. The strings
+     * already added are found through an open addressing table of their offsets and lengths, and compared by their
+     * encoded bytes, so no strings are held while the text is built.
+     */
+    private static class TextArena {
+
+        // The index of the string in each slot plus one, or zero for an empty slot
+        private int[] table = new int[tableSize(0)];
+        private long[] added = new long[16];
+        private int count;
+        private byte[] bytes = new byte[4096];
+        private int length;
+
+        long add(String value) {
+            if (value == null) {
+                return NO_TEXT & 0xffffffffL;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            int hash = Arrays.hashCode(encoded);
+            int slot = slot(hash);
+            for (; table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+                long offsetAndLength = added[table[slot] - 1];
+                if (matches(encoded, (int) (offsetAndLength >>> 32), (int) offsetAndLength)) {
+                    return offsetAndLength;
+                }
+            }
+
+            if ((long) length + encoded.length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("The inventory text is larger than 2GB");
+            }
+            if (length + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(2L * bytes.length, (long) length + encoded.length)));
+            }
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            long offsetAndLength = (long) length << 32 | encoded.length;
+            length += encoded.length;
+
+            if (count == added.length) {
+                added = Arrays.copyOf(added, count + (count >> 1));
+            }
+            added[count++] = offsetAndLength;
+            if (table.length < tableSize(count)) {
+                rehash();
+            } else {
+                table[slot] = count;
+            }
+            return offsetAndLength;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        private boolean matches(byte[] encoded, int offset, int encodedLength) {
+            if (encodedLength != encoded.length) {
+                return false;
+            }
+            for (int i = 0; i < encodedLength; i++) {
+                if (bytes[offset + i] != encoded[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            table = new int[tableSize(count)];
+            for (int index = 0; index < count; index++) {
+                int offset = (int) (added[index] >>> 32);
+                int slot = slot(hashCode(offset, (int) added[index]));
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = index + 1;
+            }
+        }
+
+        // The same hash as Arrays.hashCode of the encoded string
+        private int hashCode(int offset, int encodedLength) {
+            int hash = 1;
+            for (int i = offset; i < offset + encodedLength; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash;
+        }
+
+        private int slot(int hash) {
+            return (int) IdTable.mix(hash) & (table.length - 1);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A growing set of item ids that numbers each id by the position it was added at, for stores that keep their
+ * items in arrays by position rather than in a map.
+ *
+ * The two halves of each id are kept in arrays by position, and an id is found through an open addressing table
+ * of positions that is probed linearly. The table is rehashed into one twice the size whenever it is half full,
+ * so a probe always reaches an empty slot. An id takes around 24 bytes.
+ */
+final class IdTable {
+
+    private int size;
+    // The position of the id in each slot plus one, or zero for an empty slot
+    private int[] table = new int[16];
+    private long[] mostSignificantBits = new long[8];
+    private long[] leastSignificantBits = new long[8];
+
+    /**
+     * Adds the id at the next position, returning false if it was already added.
+     */
+    boolean add(UUID itemId) {
+        if (itemId == null) {
+            throw new IllegalArgumentException("Inventory items must have a uuid");
+        }
+        long mostSignificant = itemId.getMostSignificantBits();
+        long leastSignificant = itemId.getLeastSignificantBits();
+        if (position(mostSignificant, leastSignificant) >= 0) {
+            return false;
+        }
+        if (size == mostSignificantBits.length) {
+            if (size > 1 << 29) {
+                throw new IllegalArgumentException("Too many inventory items");
+            }
+            mostSignificantBits = Arrays.copyOf(mostSignificantBits, size * 2);
+            leastSignificantBits = Arrays.copyOf(leastSignificantBits, size * 2);
+            table = new int[table.length * 2];
+            for (int position = 0; position < size; position++) {
+                insert(position);
+            }
+        }
+        mostSignificantBits[size] = mostSignificant;
+        leastSignificantBits[size] = leastSignificant;
+        insert(size++);
+        return true;
+    }
+
+    int position(UUID itemId) {
+        return position(itemId.getMostSignificantBits(), itemId.getLeastSignificantBits());
+    }
+
+    // The position of the id, or -1 if it has not been added
+    int position(long mostSignificant, long leastSignificant) {
+        for (int slot = slot(mostSignificant, leastSignificant); ; slot = (slot + 1) & (table.length - 1)) {
+            int position = table[slot] - 1;
+            if (position < 0) {
+                return -1;
+            }
+            if (mostSignificantBits[position] == mostSignificant && leastSignificantBits[position] == leastSignificant) {
+                return position;
+            }
+        }
+    }
+
+    UUID get(int position) {
+        return new UUID(mostSignificantBits[position], leastSignificantBits[position]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drops the spare capacity of the id arrays once every id has been added.
+     */
+    void trim() {
+        mostSignificantBits = Arrays.copyOf(mostSignificantBits, size);
+        leastSignificantBits = Arrays.copyOf(leastSignificantBits, size);
+    }
+
+    /**
+     * Returns the ids as a set in the order they were added, which reflects the ids added later.
+     */
+    Set<UUID> asSet() {
+        return new IdSet();
+    }
+
+    /**
+     * Hashes the two halves of an id into one well mixed value.
+     */
+    static long hash(long mostSignificant, long leastSignificant) {
+        return mix(mostSignificant ^ mix(leastSignificant));
+    }
+
+    // The finalizer of MurmurHash3, which spreads every input bit over the whole value
+    static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private void insert(int position) {
+        int slot = slot(mostSignificantBits[position], leastSignificantBits[position]);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & (table.length - 1);
+        }
+        table[slot] = position + 1;
+    }
+
+    private int slot(long mostSignificant, long leastSignificant) {
+        return (int) hash(mostSignificant, leastSignificant) & (table.length - 1);
+    }
+
+    private class IdSet extends AbstractSet<UUID> {
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof UUID && position((UUID) o) >= 0;
+        }
+
+        @Override
+        public Iterator<UUID> iterator() {
+            return new Iterator<UUID>() {
+
+                private int position;
+
+                @Override
+                public boolean hasNext() {
+                    return position < size;
+                }
+
+                @Override
+                public UUID next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(position++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
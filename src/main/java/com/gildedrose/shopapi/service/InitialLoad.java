@@ -0,0 +1,116 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * Serves single items from an inventory load that runs in the background, so they can be found before the
+ * inventory is published.
+ *
+ * Only the ids that requests are waiting for are kept, the items read so far are only held by the store builder
+ * of the load. A request does not hold a thread while it waits: it is given a future that is completed when its
+ * item is read, when the load completes or when its timeout passes, whichever is first. The builder is only read
+ * by the loading thread, which looks up the items of new requests in it before it adds the next item, so a request
+ * for an item that was read earlier is answered then. A request counts as waiting until its item is read or the
+ * load completes, and only a bounded number of requests wait at a time, so requests for unknown ids cannot build
+ * up while a large catalogue loads. Any request beyond that is answered straight away as if the item was not
+ * found. Once the load completes the item is looked up in the published inventory.
+ */
+final class InitialLoad {
+
+    // The items that requests are waiting for, completed when the item is read or the load completes
+    private final ConcurrentHashMap<UUID, CompletableFuture<Item>> pending = new ConcurrentHashMap<>();
+    // The ids that requests started waiting for since the loading thread last looked, which it may have read already
+    private final Queue<UUID> requested = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final int maxWaiting;
+    private final ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "inventory-loader-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean complete;
+
+    InitialLoad(int maxWaiting) {
+        this.maxWaiting = maxWaiting;
+    }
+
+    /**
+     * Answers the requests waiting for the item, and those that started waiting for an item already in the
+     * builder. Called by the loading thread once it has added the item to the builder.
+     */
+    void add(Item item, ItemStore.Builder items) {
+        for (UUID itemId = requested.poll(); itemId != null; itemId = requested.poll()) {
+            Item read = items.get(itemId);
+            if (read != null) {
+                found(itemId, read);
+            }
+        }
+        found(item.getUuid(), item);
+    }
+
+    void complete() {
+        complete = true;
+        pending.values().forEach(item -> item.complete(null));
+        pending.clear();
+        requested.clear();
+        timeouts.shutdownNow();
+    }
+
+    /**
+     * Returns a future that is completed with the item once it has been read, or with null if the load completes
+     * without it, the timeout passes or too many requests are already waiting.
+     */
+    CompletableFuture<Item> find(UUID itemId, long timeoutMillis) {
+        if (complete) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Item> read = pending.computeIfAbsent(itemId, id -> {
+            requested.add(id);
+            return new CompletableFuture<>();
+        });
+        // The load may have completed before the request started waiting
+        if (complete) {
+            pending.remove(itemId, read);
+            read.complete(null);
+        }
+
+        // A request counts towards the limit until the item is read or the load completes, even if it timed out first
+        CompletableFuture<Item> found = new CompletableFuture<>();
+        read.thenAccept(readItem -> {
+            waiting.decrementAndGet();
+            found.complete(readItem);
+        });
+        if (!found.isDone()) {
+            try {
+                ScheduledFuture<?> timeout = timeouts.schedule(() -> found.complete(null), timeoutMillis, TimeUnit.MILLISECONDS);
+                found.thenRun(() -> timeout.cancel(false));
+            } catch (RuntimeException e) {
+                // The load completed and stopped the timeouts, so the item has already been found or not
+                found.complete(read.getNow(null));
+            }
+        }
+        return found;
+    }
+
+    private void found(UUID itemId, Item item) {
+        CompletableFuture<Item> waiting = pending.remove(itemId);
+        if (waiting != null) {
+            waiting.complete(item);
+        }
+    }
+}
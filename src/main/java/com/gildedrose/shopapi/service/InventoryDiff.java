@@ -0,0 +1,41 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The ids of the items that were added, removed or changed by reloading the inventory.
+ */
+public class InventoryDiff {
+
+    private final List<UUID> added;
+    private final List<UUID> removed;
+    private final List<UUID> changed;
+
+    public InventoryDiff(List<UUID> added, List<UUID> removed, List<UUID> changed) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    public List<UUID> getAdded() {
+        return added;
+    }
+
+    public List<UUID> getRemoved() {
+        return removed;
+    }
+
+    public List<UUID> getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d added, %d removed, %d changed", added.size(), removed.size(), changed.size());
+    }
+}
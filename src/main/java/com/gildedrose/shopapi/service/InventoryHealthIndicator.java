@@ -0,0 +1,29 @@
+package com.gildedrose.shopapi.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the inventory as down while the inventory loaded in the background on startup cannot be read, so the
+ * empty inventory served until then is not mistaken for the catalogue. The load is retried until it succeeds.
+ */
+@Component
+public class InventoryHealthIndicator extends AbstractHealthIndicator {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        Exception failure = inventoryService.getInitialLoadFailure();
+        if (failure != null) {
+            builder.down(failure);
+        } else {
+            builder.up();
+        }
+        builder.withDetail("version", inventoryService.getInventoryVersion())
+                .withDetail("loading", inventoryService.isLoading());
+    }
+}
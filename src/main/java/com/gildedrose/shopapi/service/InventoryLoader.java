@@ -0,0 +1,122 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import com.gildedrose.shopapi.domain.Item;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams the items of an inventory document one at a time.
+ *
+ * The {@code items} array is parsed token by token, so only the item being read is held in memory
+ * regardless of the size of the document. The location is either a {@code classpath:} resource or
+ * a file path, which is read through a buffered file channel. The document has no index, so finding
+ * a single item reads the whole document.
+ */
+@Component
+@ConditionalOnProperty(name = "gildedrose.inventory.repository", havingValue = "file", matchIfMissing = true)
+public class InventoryLoader implements InventoryRepository {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${gildedrose.inventory.location}")
+    private String location;
+
+    public String getLocation() {
+        return location;
+    }
+
+    @Override
+    public void load(Consumer<Item> consumer) throws IOException {
+        try (JsonReader reader = new JsonReader(openReader())) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("items".equals(reader.nextName())) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        consumer.accept(readItem(reader));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+    }
+
+    @Override
+    public Item find(UUID itemId) throws IOException {
+        // The last item with the id wins, as it does when the inventory is loaded
+        AtomicReference<Item> found = new AtomicReference<>();
+        load(item -> {
+            if (itemId.equals(item.getUuid())) {
+                found.set(item);
+            }
+        });
+        return found.get();
+    }
+
+    private Reader openReader() throws IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            ClassPathResource resource = new ClassPathResource(location.substring(CLASSPATH_PREFIX.length()));
+            return new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+        FileChannel channel = FileChannel.open(Paths.get(location), StandardOpenOption.READ);
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    private Item readItem(JsonReader reader) throws IOException {
+        Item.ItemBuilder builder = Item.builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "uuid":
+                    builder.uuid(UUID.fromString(reader.nextString()));
+                    break;
+                case "name":
+                    builder.name(reader.nextString());
+                    break;
+                case "description":
+                    builder.description(reader.nextString());
+                    break;
+                case "price":
+                    builder.price(reader.nextInt());
+                    break;
+                case "quantity":
+                    builder.quantity(reader.nextInt());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        Item item = builder.build();
+        if (item.getUuid() == null) {
+            throw new IOException("Inventory item without a uuid at " + reader.getPath());
+        }
+        return item;
+    }
+}
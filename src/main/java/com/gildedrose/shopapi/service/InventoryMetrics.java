@@ -0,0 +1,128 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the inventory metrics.
+ *
+ * Every meter on the request path is registered up front, so recording is a counter or timer update
+ * without a registry lookup. Surge activations are registered once the pricing engine has read its tiers, with
+ * one counter per tier rather than per item, so the number of meters does not grow with the catalogue.
+ */
+@Component
+public class InventoryMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SurgeCounter surgeCounter;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    private final AtomicLong inventoryVersion = new AtomicLong();
+    private final AtomicLong inventoryItems = new AtomicLong();
+
+    private Timer purchases;
+    private Timer rejectedPurchases;
+    private Timer baskets;
+    private Timer rejectedBaskets;
+    private Timer refreshes;
+    private Timer startup;
+    private Counter surgeWindowEvictions;
+    private Counter responseCacheHits;
+    private Counter responseCacheMisses;
+    private Counter[] surgeActivations;
+
+    @PostConstruct
+    public void init() {
+        purchases = purchaseTimer("gildedrose.purchases", "success");
+        rejectedPurchases = purchaseTimer("gildedrose.purchases", "rejected");
+        baskets = purchaseTimer("gildedrose.baskets", "success");
+        rejectedBaskets = purchaseTimer("gildedrose.baskets", "rejected");
+        refreshes = Timer.builder("gildedrose.inventory.refresh")
+                .description("Time taken to load and publish the inventory")
+                .register(meterRegistry);
+        startup = Timer.builder("gildedrose.inventory.startup")
+                .description("Time taken to load the inventory when the application started")
+                .register(meterRegistry);
+
+        surgeWindowEvictions = Counter.builder("gildedrose.surge.windows.evicted")
+                .description("Surge windows dropped for items that left the inventory")
+                .register(meterRegistry);
+        responseCacheHits = responseCacheCounter("hit");
+        responseCacheMisses = responseCacheCounter("miss");
+
+        meterRegistry.gauge("gildedrose.inventory.version", inventoryVersion);
+        meterRegistry.gauge("gildedrose.inventory.items", inventoryItems);
+        meterRegistry.gauge("gildedrose.surge.windows", surgeCounter, SurgeCounter::size);
+        meterRegistry.gauge("gildedrose.stock.ledger.entries", stockLedger, StockLedger::size);
+    }
+
+    private Timer purchaseTimer(String name, String result) {
+        return Timer.builder(name)
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter responseCacheCounter(String result) {
+        return Counter.builder("gildedrose.inventory.response.cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public void recordPurchase(boolean success, long nanos) {
+        (success ? purchases : rejectedPurchases).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBasket(boolean success, long nanos) {
+        (success ? baskets : rejectedBaskets).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRefresh(long nanos) {
+        refreshes.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStartup(long nanos) {
+        startup.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublish(InventorySnapshot snapshot, int evictedSurgeWindows) {
+        inventoryVersion.set(snapshot.getVersion());
+        inventoryItems.set(snapshot.size());
+        surgeWindowEvictions.increment(evictedSurgeWindows);
+    }
+
+    /**
+     * Registers the surge meters for the given number of tiers, and the items held in surge pricing.
+     */
+    public void registerSurgeTiers(int tiers, Map<UUID, ?> surgePrices) {
+        surgeActivations = new Counter[tiers + 1];
+        for (int tier = 1; tier <= tiers; tier++) {
+            surgeActivations[tier] = Counter.builder("gildedrose.surge.activations")
+                    .description("Times an item rose into the surge tier")
+                    .tag("tier", String.valueOf(tier))
+                    .register(meterRegistry);
+        }
+        meterRegistry.gauge("gildedrose.surge.items", surgePrices, Map::size);
+    }
+
+    public void recordSurgeActivation(int tier) {
+        surgeActivations[tier].increment();
+    }
+
+    public void recordResponseCache(boolean hit) {
+        (hit ? responseCacheHits : responseCacheMisses).increment();
+    }
+}
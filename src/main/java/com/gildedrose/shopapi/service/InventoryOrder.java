@@ -0,0 +1,26 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Comparator;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * The orders an inventory can be paged through. Every order ends with the item id, so it is total
+ * and a cursor always identifies a single position.
+ */
+public enum InventoryOrder {
+
+    UUID(Comparator.comparing(Item::getUuid)),
+
+    NAME(Comparator.comparing((Item item) -> item.getName() != null ? item.getName() : "")
+            .thenComparing(Item::getUuid));
+
+    private final Comparator<Item> comparator;
+
+    InventoryOrder(Comparator<Item> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Item> getComparator() {
+        return comparator;
+    }
+}
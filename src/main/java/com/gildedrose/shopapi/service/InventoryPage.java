@@ -0,0 +1,26 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.List;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * A page of the inventory and the cursor of the page that follows it, if there is one.
+ */
+public class InventoryPage {
+
+    private final List<Item> items;
+    private final String nextCursor;
+
+    public InventoryPage(List<Item> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
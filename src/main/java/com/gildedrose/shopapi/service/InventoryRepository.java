@@ -0,0 +1,34 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.function.Consumer;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * Where the inventory catalogue is read from, chosen with {@code gildedrose.inventory.repository}.
+ *
+ * The whole catalogue is streamed each time the inventory is refreshed. Single items are only read when the
+ * inventory is held in a near cache ({@link InventoryStorage#CACHED}), for the items that are not cached, which needs
+ * a repository that reads them by key.
+ */
+public interface InventoryRepository {
+
+    /**
+     * Passes every item in the catalogue to the consumer, one at a time.
+     */
+    void load(Consumer<Item> consumer) throws IOException;
+
+    /**
+     * Returns the item with the given id, or null if it is not in the catalogue.
+     */
+    Item find(UUID itemId) throws IOException;
+
+    /**
+     * Returns whether {@link #find} reads only the item with the given id, rather than scanning the catalogue.
+     * The inventory can only be held in a near cache when it does.
+     */
+    default boolean isKeyed() {
+        return false;
+    }
+}
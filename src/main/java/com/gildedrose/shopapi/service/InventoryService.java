@@ -1,126 +1,648 @@
 package com.gildedrose.shopapi.service;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import com.gildedrose.shopapi.domain.BasketItem;
 import com.gildedrose.shopapi.domain.Item;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
-import lombok.Builder;
-import lombok.Getter;
-import lombok.Setter;
+import com.gildedrose.shopapi.domain.Order;
+import com.gildedrose.shopapi.domain.OrderItem;
+import com.gildedrose.shopapi.domain.ReadOnlyItem;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 @Service
+@CommonsLog
 public class InventoryService {
 
-    @Value("${gildedrose.surge.window.ms}")
-    private long timeToLive;
+    private static final CompletableFuture<Void> JOURNALED = CompletableFuture.completedFuture(null);
+    private static final long MAX_STARTUP_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
-    @Value("${gildedrose.surge.size}")
-    private int surgeSize;
+    @Value("${gildedrose.inventory.refresh.stock}")
+    private StockRefreshPolicy stockRefreshPolicy;
 
-    private LoadingCache<ItemCacheKey, Item> itemCache;
-    private Map<UUID, Item> inventory = new ConcurrentHashMap<>();
+    @Value("${gildedrose.inventory.storage}")
+    private InventoryStorage inventoryStorage;
 
-    public InventoryService() throws IOException {
-        refreshInventory();
+    @Value("${gildedrose.inventory.cache.items}")
+    private long cacheItems;
+
+    @Value("${gildedrose.inventory.cache.bytes}")
+    private long cacheBytes;
+
+    @Value("${gildedrose.inventory.startup}")
+    private InventoryStartup inventoryStartup;
+
+    @Value("${gildedrose.inventory.startup.wait.ms}")
+    private long startupWaitMillis;
+
+    @Value("${gildedrose.inventory.startup.wait.max}")
+    private int startupWaitMax;
+
+    @Value("${gildedrose.inventory.startup.retry.ms}")
+    private long startupRetryMillis;
+
+    @Autowired
+    private SurgeCounter surgeCounter;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private PurchaseJournal purchaseJournal;
+
+    @Autowired
+    private InventoryMetrics inventoryMetrics;
+
+    private volatile InventorySnapshot inventory = InventorySnapshot.EMPTY;
+
+    private volatile InitialLoad initialLoad;
+
+    private volatile Exception initialLoadFailure;
+
+    private final Map<UUID, ItemView> itemViews = new ConcurrentHashMap<>();
+
+    private final List<Consumer<InventorySnapshot>> inventoryListeners = new CopyOnWriteArrayList<>();
+
+    private final List<Consumer<UUID>> itemListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (inventoryStorage == InventoryStorage.CACHED && stockRefreshPolicy == StockRefreshPolicy.RETAIN) {
+            // Cached items are read from the repository, so the stock of the previous version cannot be carried over
+            throw new IllegalArgumentException("The RETAIN stock refresh policy needs the inventory to be held in memory");
+        }
+        if (inventoryStorage == InventoryStorage.CACHED && !inventoryRepository.isKeyed()) {
+            // Every item missing from the cache would be found by reading the whole catalogue
+            throw new IllegalArgumentException("The CACHED inventory storage needs a repository that finds items by key");
+        }
+        pricingEngine.addPriceListener(this::itemChanged);
+
+        // Replay the units sold before the last restart, the first inventory version keeps those of the items it stocks
+        if (purchaseJournal.isEnabled()) {
+            purchaseJournal.getReplayedSales().forEach((itemId, sold) ->
+                    stockLedger.setSold(itemId, (int) Math.min(sold, Integer.MAX_VALUE)));
+        }
+
+        long start = System.nanoTime();
+        if (inventoryStartup == InventoryStartup.BACKGROUND) {
+            InitialLoad load = new InitialLoad(startupWaitMax);
+            initialLoad = load;
+            Thread loader = new Thread(() -> loadInitialInventory(load, start), "inventory-loader");
+            loader.setDaemon(true);
+            loader.start();
+        } else {
+            refreshInventory();
+            recordStartup(start);
+        }
     }
 
-    private LoadingCache<ItemCacheKey, Item> getItemCache() {
-        if (itemCache == null) {
-            itemCache = CacheBuilder.newBuilder()
-                    .expireAfterWrite(timeToLive, TimeUnit.MILLISECONDS)
-                    .build(new CacheLoader<ItemCacheKey, Item>() {
-                        @Override
-                        public Item load(ItemCacheKey key) {
-                            return key.getItem();
-                        }
-                    });
+    // A failed load is retried with a growing delay until it succeeds or a refresh publishes the inventory instead
+    private void loadInitialInventory(InitialLoad load, long start) {
+        try {
+            for (long retryMillis = startupRetryMillis; inventory.getVersion() == 0;
+                 retryMillis = Math.min(retryMillis * 2, MAX_STARTUP_RETRY_MILLIS)) {
+                try {
+                    if (inventoryStorage == InventoryStorage.CACHED) {
+                        publishInitialInventory(CachedItemStore.load(inventoryRepository, cacheItems, cacheBytes));
+                    } else {
+                        // Items that are not published yet are read by key from a keyed repository, or otherwise
+                        // looked up in the builder by this thread as it reads them
+                        ItemStore.Builder items = newStoreBuilder();
+                        inventoryRepository.load(inventoryRepository.isKeyed() ? items::add : item -> {
+                            items.add(item);
+                            load.add(item, items);
+                        });
+                        publishInitialInventory(items.build());
+                    }
+                    recordStartup(start);
+                    break;
+                } catch (IOException | RuntimeException e) {
+                    initialLoadFailure = e;
+                    log.error(String.format("Unable to load the inventory, retrying in %d ms", retryMillis), e);
+                    Thread.sleep(retryMillis);
+                }
+            }
+            initialLoadFailure = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Requests that were waiting for an item now find it in the published inventory
+            initialLoad = null;
+            load.complete();
         }
-        return itemCache;
+    }
+
+    // A refresh made while the initial inventory was loading has already published a newer one
+    private synchronized void publishInitialInventory(ItemStore store) {
+        if (inventory.getVersion() == 0) {
+            publishStore(store);
+        }
+    }
+
+    /**
+     * Returns whether the inventory is still being loaded in the background on startup.
+     */
+    public boolean isLoading() {
+        return initialLoad != null;
+    }
+
+    /**
+     * Returns why the last attempt to load the inventory in the background failed while it is being retried,
+     * or null if it has not failed or has since been published.
+     */
+    public Exception getInitialLoadFailure() {
+        return initialLoadFailure;
+    }
+
+    private void recordStartup(long start) {
+        long nanos = System.nanoTime() - start;
+        inventoryMetrics.recordStartup(nanos);
+        log.info(String.format("Loaded the inventory of %d items in %d ms", inventory.size(),
+                TimeUnit.NANOSECONDS.toMillis(nanos)));
     }
 
     public void refreshInventory() throws IOException {
-        Gson gson = new Gson();
-        ClassPathResource resource = new ClassPathResource("inventory.json");
-        JsonReader reader = new JsonReader(new InputStreamReader(resource.getInputStream()));
-        Map<String, List<Item>> objects = gson.fromJson(reader, new TypeToken<Map<String, List<Item>>>(){}.getType());
-        inventory = objects.get("items").stream()
-                .collect(Collectors.toMap(Item::getUuid, Function.identity()));
+        long start = System.nanoTime();
+        if (inventoryStorage == InventoryStorage.CACHED) {
+            publishStore(CachedItemStore.load(inventoryRepository, cacheItems, cacheBytes));
+        } else {
+            // Items are streamed into the next snapshot, readers keep using the current one until it is published
+            ItemStore.Builder items = newStoreBuilder();
+            inventoryRepository.load(items::add);
+            publishInventory(items);
+        }
+        inventoryMetrics.recordRefresh(System.nanoTime() - start);
+    }
+
+    /**
+     * Publishes the given items as the inventory. They are already in memory, so they are held in a map
+     * when the inventory is otherwise cached.
+     */
+    public void refreshInventory(Collection<Item> items) {
+        long start = System.nanoTime();
+        ItemStore.Builder inventoryItems = newStoreBuilder();
+        items.forEach(inventoryItems::add);
+        publishInventory(inventoryItems);
+        inventoryMetrics.recordRefresh(System.nanoTime() - start);
+    }
+
+    /**
+     * Reloads the inventory and publishes a new version only if items were added, removed or changed. Unchanged
+     * items are carried over as they are, so their prices and item views are not rebuilt. The stock refresh
+     * policy applies as it does to a refresh, except that RESET only resets the stock of added and changed items.
+     *
+     * When the inventory is cached, items are read from the repository as they are needed, so changed items
+     * cannot be told apart from unchanged ones. A new version is always published to drop the cached items,
+     * and only the added and removed items are reported.
+     */
+    public InventoryDiff reloadInventory() throws IOException {
+        long start = System.nanoTime();
+        InventoryDiff diff;
+        if (inventoryStorage == InventoryStorage.CACHED) {
+            diff = applyStore(CachedItemStore.load(inventoryRepository, cacheItems, cacheBytes));
+        } else {
+            ItemStore.Builder items = newStoreBuilder();
+            inventoryRepository.load(items::add);
+            diff = applyInventory(items);
+        }
+        inventoryMetrics.recordRefresh(System.nanoTime() - start);
+        return diff;
+    }
+
+    public InventoryDiff reloadInventory(Collection<Item> items) {
+        long start = System.nanoTime();
+        ItemStore.Builder inventoryItems = newStoreBuilder();
+        items.forEach(inventoryItems::add);
+        InventoryDiff diff = applyInventory(inventoryItems);
+        inventoryMetrics.recordRefresh(System.nanoTime() - start);
+        return diff;
+    }
+
+    private synchronized InventoryDiff applyInventory(ItemStore.Builder items) {
+        InventorySnapshot current = inventory;
+        List<UUID> added = new ArrayList<>();
+        List<UUID> changed = new ArrayList<>();
+        items.replaceAll(item -> {
+            Item currentItem = current.get(item.getUuid());
+            if (currentItem == null) {
+                added.add(item.getUuid());
+                return item;
+            }
+            if (isUnchanged(currentItem, item)) {
+                return currentItem;
+            }
+            changed.add(item.getUuid());
+            return item;
+        });
+        List<UUID> removed = current.getItemIds().stream()
+                .filter(itemId -> !items.contains(itemId))
+                .collect(Collectors.toList());
+
+        InventoryDiff diff = new InventoryDiff(added, removed, changed);
+        if (!diff.isEmpty()) {
+            // Only the stock of the items in the diff is reset, unaffected items keep their units sold
+            List<UUID> affected = new ArrayList<>(added);
+            affected.addAll(changed);
+            publishInventory(items, affected);
+        }
+        return diff;
+    }
+
+    private synchronized InventoryDiff applyStore(ItemStore store) {
+        Set<UUID> currentItemIds = inventory.getItemIds();
+        Set<UUID> itemIds = store.getItemIds();
+        List<UUID> added = itemIds.stream()
+                .filter(itemId -> !currentItemIds.contains(itemId))
+                .collect(Collectors.toList());
+        List<UUID> removed = currentItemIds.stream()
+                .filter(itemId -> !itemIds.contains(itemId))
+                .collect(Collectors.toList());
+        publishStore(store);
+        return new InventoryDiff(added, removed, Collections.emptyList());
+    }
+
+    private boolean isUnchanged(Item currentItem, Item item) {
+        // The catalogue quantity of existing items is ignored when their stock is retained
+        return Objects.equals(currentItem.getName(), item.getName())
+                && Objects.equals(currentItem.getDescription(), item.getDescription())
+                && currentItem.getPrice() == item.getPrice()
+                && (stockRefreshPolicy == StockRefreshPolicy.RETAIN || currentItem.getQuantity() == item.getQuantity());
+    }
+
+    // Compact items are added to primitive arrays as they are read, so the catalogue is never held as a map
+    private ItemStore.Builder newStoreBuilder() {
+        return inventoryStorage == InventoryStorage.COMPACT ? new CompactItemStore.Builder() : new MapItemStore.Builder();
+    }
+
+    private void publishInventory(ItemStore.Builder items) {
+        publishInventory(items, null);
+    }
+
+    // Under the RESET policy the units sold of the given items are discarded, or of every item if there are none given
+    private synchronized void publishInventory(ItemStore.Builder items, Collection<UUID> resetItemIds) {
+        InventorySnapshot current = inventory;
+        if (stockRefreshPolicy == StockRefreshPolicy.RETAIN) {
+            items.replaceAll(item -> {
+                Item currentItem = current.get(item.getUuid());
+                if (currentItem == null || currentItem == item) {
+                    return item;
+                }
+                return copyItem(item, item.getPrice(), currentItem.getQuantity());
+            });
+        }
+
+        publishStore(items.build(), resetItemIds);
+    }
+
+    private void publishStore(ItemStore store) {
+        publishStore(store, null);
+    }
+
+    private synchronized void publishStore(ItemStore store, Collection<UUID> resetItemIds) {
+        InventorySnapshot current = inventory;
+        // Units sold are discarded before the new version is visible, so purchases made against it are kept
+        boolean reset = stockRefreshPolicy == StockRefreshPolicy.RESET && current.getVersion() > 0;
+        if (reset) {
+            if (purchaseJournal.isEnabled()) {
+                try {
+                    if (resetItemIds == null) {
+                        purchaseJournal.recordReset();
+                    } else if (!resetItemIds.isEmpty()) {
+                        purchaseJournal.recordReset(resetItemIds);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (resetItemIds == null) {
+                stockLedger.reset();
+            } else {
+                stockLedger.reset(resetItemIds);
+            }
+        }
+
+        InventorySnapshot snapshot = new InventorySnapshot(current.getVersion() + 1, store);
+        inventory = snapshot;
+
+        // Surge state and units sold are kept by item id, so they survive a refresh for items that are still stocked
+        Set<UUID> itemIds = store.getItemIds();
+        inventoryMetrics.recordPublish(snapshot, surgeCounter.retain(itemIds));
+        pricingEngine.publish(snapshot);
+        if (store.holdsItems()) {
+            itemViews.keySet().retainAll(itemIds);
+        } else {
+            itemViews.clear();
+        }
+        // The first version keeps the units sold that were replayed from the journal or sold while it was loading
+        stockLedger.retain(itemIds);
+        inventoryListeners.forEach(listener -> listener.accept(snapshot));
+    }
+
+    /**
+     * Registers a listener that is called with every inventory version published from now on. Listeners are
+     * called while the inventory is being published, so they should hand any slow work off to another thread.
+     */
+    public void addInventoryListener(Consumer<InventorySnapshot> listener) {
+        inventoryListeners.add(listener);
+    }
+
+    /**
+     * Registers a listener that is called with the id of an item whose price or stock level has been changed by
+     * a purchase or a change of surge tier, rather than by a new inventory version. Listeners are called on the
+     * purchasing or pricing thread, so they should only note the change.
+     */
+    public void addItemListener(Consumer<UUID> listener) {
+        itemListeners.add(listener);
+    }
+
+    private void itemChanged(UUID itemId) {
+        itemListeners.forEach(listener -> listener.accept(itemId));
+    }
+
+    public long getInventoryVersion() {
+        return inventory.getVersion();
+    }
+
+    public InventorySnapshot getInventorySnapshot() {
+        return inventory;
+    }
+
+    /**
+     * Returns whether the inventory is only listed a page at a time. A cached inventory is larger than the heap,
+     * so listing it in a single response would read the whole catalogue into memory.
+     */
+    public boolean isListedByPage() {
+        return inventoryStorage == InventoryStorage.CACHED;
     }
 
     public List<Item> getInventory() {
-        return inventory.values().stream().collect(Collectors.toList());
+        return inventory.getItems().stream()
+                .map(item -> copyItem(item, item.getPrice(), getAvailable(item)))
+                .collect(Collectors.toList());
     }
 
-    public Item getItem(UUID itemId) throws Exception {
-        Item item = inventory.get(itemId);
+    public InventoryPage getInventoryPage(InventoryOrder order, String cursor, int limit) {
+        InventoryPage page = inventory.getPage(order, cursor, limit);
+        List<Item> items = page.getItems().stream()
+                .map(item -> copyItem(item, item.getPrice(), getAvailable(item)))
+                .collect(Collectors.toList());
+        return new InventoryPage(items, page.getNextCursor());
+    }
+
+    /**
+     * Records a view of the item and returns it at its current price. The returned item may be shared between
+     * views of the same price and stock level, so it is read only.
+     */
+    public Item getItem(UUID itemId) {
+        InventorySnapshot snapshot = inventory;
+        Item item = findItem(snapshot, itemId);
         if (item != null) {
-            // Add the item to the cache
-            Item cachedItem = getItemCache().get(ItemCacheKey.builder()
-                    .requestId(UUID.randomUUID())
-                    .item(item)
-                    .build());
+            int price = pricingEngine.recordViews(item, surgeCounter.recordView(itemId));
+            int quantity = getAvailable(item);
+            // A view of an item the store does not hold would keep that item in memory, so those views are not kept
+            return snapshot.holdsItems() ? getItemView(item, price, quantity)
+                    : new ReadOnlyItem(item.getUuid(), item.getName(), item.getDescription(), price, quantity);
+        }
+        return null;
+    }
 
-            // Retrieve the items matching the request
-            List<Item> items = getCachedItems(itemId);
+    /**
+     * Returns the item at its current price and stock level without recording a view, or null if it is not
+     * in the published inventory.
+     */
+    public Item getCurrentItem(UUID itemId) {
+        Item item = inventory.get(itemId);
+        return item != null ? getPricedItem(item, getAvailable(item)) : null;
+    }
 
-            // Create a copy of the item (surge pricing only applies once)
-            return getPriceAdjustedItem(cachedItem, items.size());
+    // Reuses the last view of the item while its price and stock level are unchanged, so repeated views allocate nothing
+    private Item getItemView(Item item, int price, int quantity) {
+        ItemView itemView = itemViews.get(item.getUuid());
+        if (itemView == null || !itemView.item.equals(item)) {
+            itemView = new ItemView(item);
+            itemViews.put(item.getUuid(), itemView);
         }
-        return null;
+        Item view = itemView.view;
+        if (view == null || view.getPrice() != price || view.getQuantity() != quantity) {
+            view = new ReadOnlyItem(item.getUuid(), item.getName(), item.getDescription(), price, quantity);
+            itemView.view = view;
+        }
+        return view;
     }
 
-    private List<Item> getCachedItems(final UUID itemId) {
-        return getItemCache().asMap().values()
-                .stream()
-                .filter(i -> i.getUuid().equals(itemId))
-                .collect(Collectors.toList());
+    private Item getPricedItem(Item item, int quantity) {
+        return copyItem(item, pricingEngine.getPrice(item), quantity);
     }
 
-    private Item getPriceAdjustedItem(Item item, int cachedItemsCount) {
-        return Item.builder()
-                .uuid(item.getUuid())
-                .name(item.getName())
-                .description(item.getDescription())
-                .price(cachedItemsCount > surgeSize ? (int) Math.round(item.getPrice() * 1.1) : item.getPrice())
-                .quantity(item.getQuantity())
-                .build();
+    private Item copyItem(Item item, int price, int quantity) {
+        return new Item(item.getUuid(), item.getName(), item.getDescription(), price, quantity);
+    }
+
+    private Item findItem(InventorySnapshot snapshot, UUID itemId) {
+        Item item = snapshot.get(itemId);
+        return item != null || initialLoad == null ? item : await(findLoadingItem(itemId));
+    }
+
+    private CompletableFuture<Item> findItemAsync(InventorySnapshot snapshot, UUID itemId) {
+        Item item = snapshot.get(itemId);
+        return item != null || initialLoad == null ? CompletableFuture.completedFuture(item) : findLoadingItem(itemId);
+    }
+
+    // While the initial inventory is loading, an item that is not published yet is read by key from a keyed
+    // repository, or otherwise served once the load has read it
+    private CompletableFuture<Item> findLoadingItem(UUID itemId) {
+        InitialLoad load = initialLoad;
+        if (load == null) {
+            return CompletableFuture.completedFuture(inventory.get(itemId));
+        }
+        if (inventoryRepository.isKeyed()) {
+            CompletableFuture<Item> item = new CompletableFuture<>();
+            try {
+                item.complete(inventoryRepository.find(itemId));
+            } catch (IOException | RuntimeException e) {
+                item.completeExceptionally(e);
+            }
+            return item;
+        }
+        return load.find(itemId, startupWaitMillis).thenApply(item -> item != null ? item : inventory.get(itemId));
+    }
+
+    private int getAvailable(Item item) {
+        return stockLedger.getAvailable(item.getUuid(), item.getQuantity());
     }
 
     public Item purchaseItem(UUID itemId, int quantity) {
-        Item item = inventory.get(itemId);
-        if (item != null) {
-            if (item.getQuantity() > 0 && item.getQuantity() >= quantity) {
-                item.setQuantity(item.getQuantity() - quantity);
-                return getPriceAdjustedItem(item, getCachedItems(itemId).size());
+        return await(purchaseItemAsync(itemId, quantity));
+    }
+
+    /**
+     * Purchases the item, completing the returned future with the purchased item, or null if it is unavailable
+     * or has insufficient stock, once the purchase is durable.
+     */
+    public CompletableFuture<Item> purchaseItemAsync(UUID itemId, int quantity) {
+        long start = System.nanoTime();
+        // Until the initial inventory is published the purchase may wait for the item to be read, without a thread
+        return findItemAsync(inventory, itemId).thenCompose(item -> purchaseItem(item, itemId, quantity, start));
+    }
+
+    private CompletableFuture<Item> purchaseItem(Item item, UUID itemId, int quantity, long start) {
+        // The catalogue quantity is the stock level, the ledger reserves against it atomically
+        int remaining = item != null ? stockLedger.reserve(itemId, item.getQuantity(), quantity) : StockLedger.INSUFFICIENT_STOCK;
+        if (remaining == StockLedger.INSUFFICIENT_STOCK) {
+            inventoryMetrics.recordPurchase(false, System.nanoTime() - start);
+            return CompletableFuture.completedFuture(null);
+        }
+        itemChanged(itemId);
+
+        Item purchasedItem = getPricedItem(item, remaining);
+        return journalPurchases(Collections.singletonMap(itemId, quantity)).thenApply(journaled -> {
+            inventoryMetrics.recordPurchase(true, System.nanoTime() - start);
+            return purchasedItem;
+        });
+    }
+
+    /**
+     * Purchases every item in the basket, or none of them if any item is unavailable or has
+     * insufficient stock. Each distinct item is reserved and priced once.
+     */
+    public Order purchaseItems(List<BasketItem> basketItems) {
+        return await(purchaseItemsAsync(basketItems));
+    }
+
+    public CompletableFuture<Order> purchaseItemsAsync(List<BasketItem> basketItems) {
+        long start = System.nanoTime();
+        Map<UUID, Long> quantities = getQuantities(basketItems);
+        if (quantities == null) {
+            inventoryMetrics.recordBasket(false, System.nanoTime() - start);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Every item is found before any is reserved, waiting without a thread for any that are still loading
+        InventorySnapshot snapshot = inventory;
+        Map<UUID, CompletableFuture<Item>> items = new HashMap<>();
+        quantities.keySet().forEach(itemId -> items.put(itemId, findItemAsync(snapshot, itemId)));
+        return CompletableFuture.allOf(items.values().toArray(new CompletableFuture<?>[0])).thenCompose(found -> {
+            Map<UUID, Integer> reserved = new HashMap<>();
+            Order order = reserveItems(quantities, items, reserved);
+            if (order == null) {
+                inventoryMetrics.recordBasket(false, System.nanoTime() - start);
+                return CompletableFuture.completedFuture(null);
             }
+            reserved.keySet().forEach(this::itemChanged);
+
+            return journalPurchases(reserved).thenApply(journaled -> {
+                inventoryMetrics.recordBasket(true, System.nanoTime() - start);
+                return order;
+            });
+        });
+    }
+
+    // Combines the quantities of the same item, in a fixed order so baskets reserve items consistently
+    private static Map<UUID, Long> getQuantities(List<BasketItem> basketItems) {
+        Map<UUID, Long> quantities = new TreeMap<>();
+        for (BasketItem basketItem : basketItems) {
+            if (basketItem.getItemId() == null || basketItem.getQuantity() <= 0) {
+                return null;
+            }
+            quantities.merge(basketItem.getItemId(), (long) basketItem.getQuantity(), Long::sum);
+        }
+        return quantities.isEmpty() ? null : quantities;
+    }
+
+    private Order reserveItems(Map<UUID, Long> quantities, Map<UUID, CompletableFuture<Item>> items,
+                               Map<UUID, Integer> reserved) {
+        List<OrderItem> orderItems = new ArrayList<>(quantities.size());
+        long total = 0;
+        for (Map.Entry<UUID, Long> entry : quantities.entrySet()) {
+            UUID itemId = entry.getKey();
+            Item item = items.get(itemId).join();
+            int quantity = (int) Math.min(entry.getValue(), Integer.MAX_VALUE);
+            int remaining = item != null ? stockLedger.reserve(itemId, item.getQuantity(), quantity) : StockLedger.INSUFFICIENT_STOCK;
+            if (remaining == StockLedger.INSUFFICIENT_STOCK) {
+                reserved.forEach(stockLedger::release);
+                return null;
+            }
+            reserved.put(itemId, quantity);
+
+            Item pricedItem = getPricedItem(item, remaining);
+            long itemTotal = (long) pricedItem.getPrice() * quantity;
+            orderItems.add(OrderItem.builder()
+                    .item(pricedItem)
+                    .quantity(quantity)
+                    .total(itemTotal)
+                    .build());
+            total += itemTotal;
+        }
+
+        return Order.builder()
+                .items(orderItems)
+                .total(total)
+                .build();
+    }
+
+    // Makes the purchases durable, or returns them to stock if they cannot be journaled
+    private CompletableFuture<Void> journalPurchases(Map<UUID, Integer> purchases) {
+        if (!purchaseJournal.isEnabled()) {
+            return JOURNALED;
+        }
+        return purchaseJournal.recordAsync(purchases).whenComplete((journaled, e) -> {
+            if (e != null) {
+                purchases.forEach(stockLedger::release);
+                purchases.keySet().forEach(this::itemChanged);
+            }
+        });
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw e;
         }
-        return null;
     }
 
     public void resetCache() {
-        getItemCache().invalidateAll();
+        surgeCounter.reset();
+        pricingEngine.reset();
     }
 
-    @Getter
-    @Setter
-    @Builder
-    private static class ItemCacheKey {
-        private UUID requestId;
-        private Item item;
+    // The last view of a catalogue item, replaced when the item changes
+    private static class ItemView {
+
+        private final Item item;
+        private volatile Item view;
+
+        ItemView(Item item) {
+            this.item = item;
+        }
     }
 }
@@ -0,0 +1,108 @@
+package com.gildedrose.shopapi.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import com.gildedrose.shopapi.domain.Item;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * An immutable version of the inventory.
+ *
+ * A snapshot is never modified once it is published, so readers can use it without locking while
+ * the next version is built. The items are held in an {@link ItemStore}, either as a map of items,
+ * as compact arrays or in a near cache of the repository. The ordered indexes used for paging are
+ * sorted the first time a page in that order is requested, once per order: requests made while it is
+ * being sorted wait for that sort rather than each sorting the catalogue.
+ */
+public final class InventorySnapshot {
+
+    public static final InventorySnapshot EMPTY = new InventorySnapshot(0, Collections.emptyMap());
+
+    private static final char CURSOR_SEPARATOR = '\u0000';
+    private static final BaseEncoding CURSOR_ENCODING = BaseEncoding.base64Url().omitPadding();
+
+    private final long version;
+    private final ItemStore items;
+    private final Map<InventoryOrder, Supplier<List<Item>>> orderedItems = new EnumMap<>(InventoryOrder.class);
+
+    InventorySnapshot(long version, Map<UUID, Item> items) {
+        this(version, new MapItemStore(items));
+    }
+
+    InventorySnapshot(long version, ItemStore items) {
+        this.version = version;
+        this.items = items;
+        for (InventoryOrder order : InventoryOrder.values()) {
+            orderedItems.put(order, Suppliers.memoize(() -> items.sort(order.getComparator())));
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Item get(UUID itemId) {
+        return items.get(itemId);
+    }
+
+    public Collection<Item> getItems() {
+        return items.getItems();
+    }
+
+    public Set<UUID> getItemIds() {
+        return items.getItemIds();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    boolean holdsItems() {
+        return items.holdsItems();
+    }
+
+    /**
+     * Returns up to limit items that follow the cursor in the given order, or the first items if
+     * there is no cursor. The cursor does not need to refer to an item in this version.
+     *
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public InventoryPage getPage(InventoryOrder order, String cursor, int limit) {
+        List<Item> ordered = orderedItems.get(order).get();
+
+        int start = 0;
+        if (cursor != null) {
+            int index = Collections.binarySearch(ordered, decodeCursor(cursor), order.getComparator());
+            start = index >= 0 ? index + 1 : -index - 1;
+        }
+        int end = (int) Math.min(ordered.size(), (long) start + limit);
+
+        List<Item> page = ordered.subList(start, end);
+        return new InventoryPage(page, end < ordered.size() ? encodeCursor(ordered.get(end - 1)) : null);
+    }
+
+    private static String encodeCursor(Item item) {
+        String name = item.getName() != null ? item.getName() : "";
+        return CURSOR_ENCODING.encode((name + CURSOR_SEPARATOR + item.getUuid()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Item decodeCursor(String cursor) {
+        String decoded = new String(CURSOR_ENCODING.decode(cursor), StandardCharsets.UTF_8);
+        int separator = decoded.lastIndexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid inventory cursor");
+        }
+        return Item.builder()
+                .name(decoded.substring(0, separator))
+                .uuid(UUID.fromString(decoded.substring(separator + 1)))
+                .build();
+    }
+}
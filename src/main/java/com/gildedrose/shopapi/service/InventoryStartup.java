@@ -0,0 +1,19 @@
+package com.gildedrose.shopapi.service;
+
+/**
+ * How the inventory is loaded when the application starts.
+ */
+public enum InventoryStartup {
+
+    /**
+     * The inventory is loaded before the application starts serving requests.
+     */
+    BLOCKING,
+
+    /**
+     * The application starts serving requests straight away while the inventory is loaded in the background.
+     * Requests for single items are served as soon as the item has been read, and listings show the inventory
+     * once it is published.
+     */
+    BACKGROUND
+}
@@ -0,0 +1,25 @@
+package com.gildedrose.shopapi.service;
+
+/**
+ * How the items of each inventory version are held in memory.
+ */
+public enum InventoryStorage {
+
+    /**
+     * Items are kept as objects in a map, which is the fastest to read.
+     */
+    MAP,
+
+    /**
+     * Items are kept in primitive arrays and created when they are read, which takes around a third of
+     * the memory of a map.
+     */
+    COMPACT,
+
+    /**
+     * Only the item ids are kept, and items are read from the {@link InventoryRepository} through a bounded
+     * near cache, for catalogues that are larger than the heap. The repository has to find items by key, and the
+     * inventory is only listed a page at a time.
+     */
+    CACHED
+}
@@ -0,0 +1,107 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reloads the inventory when the inventory file changes.
+ *
+ * The directory of the file is watched, so the file can be replaced by moving a new version over it as well as
+ * being written in place. Changes are applied once the directory has been quiet for
+ * {@code gildedrose.inventory.watch.debounce.ms}, so the file is read after it has been completely written, and
+ * only the items that differ from the current inventory are published. A file that cannot be read is logged and
+ * left until it changes again.
+ */
+@Component
+@CommonsLog
+@ConditionalOnProperty(name = "gildedrose.inventory.watch.enabled", havingValue = "true")
+public class InventoryWatcher {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    @Value("${gildedrose.inventory.location}")
+    private String location;
+
+    @Value("${gildedrose.inventory.watch.debounce.ms}")
+    private long debounceMillis;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    private WatchService watchService;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            throw new IllegalArgumentException("Only an inventory file can be watched, not " + location);
+        }
+        Path file = Paths.get(location).toAbsolutePath();
+        watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(() -> watch(file.getFileName()), "inventory-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch(Path fileName) {
+        try {
+            while (true) {
+                if (isChanged(watchService.take(), fileName)) {
+                    // Wait for the writes to the directory to settle before reading the file
+                    WatchKey key;
+                    while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                        isChanged(key, fileName);
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher has been closed
+        }
+    }
+
+    private boolean isChanged(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // Events are dropped if too many happen at once, in which case the file may have changed
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        long start = System.nanoTime();
+        try {
+            InventoryDiff diff = inventoryService.reloadInventory();
+            if (!diff.isEmpty()) {
+                log.info(String.format("Reloaded the inventory from %s with %s items in %d ms", location, diff,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to reload the inventory from " + location, e);
+        }
+    }
+}
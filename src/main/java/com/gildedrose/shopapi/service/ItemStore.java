@@ -0,0 +1,55 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * Holds the items of an inventory version. A store is never modified once it is built.
+ */
+interface ItemStore {
+
+    Item get(UUID itemId);
+
+    Collection<Item> getItems();
+
+    Set<UUID> getItemIds();
+
+    int size();
+
+    /**
+     * Returns whether the store holds its items as objects, so reading an item returns the same instance every
+     * time. Views of items that are created as they are read are not kept, as they would take more memory than
+     * the store saves.
+     */
+    boolean holdsItems();
+
+    /**
+     * Returns the items in the given order as a random access list.
+     */
+    List<Item> sort(Comparator<Item> comparator);
+
+    /**
+     * Collects the items of the next inventory version as they are read. An item replaces any item added before
+     * it with the same id.
+     */
+    interface Builder {
+
+        void add(Item item);
+
+        Item get(UUID itemId);
+
+        boolean contains(UUID itemId);
+
+        /**
+         * Replaces each item with the result of the function, which is given each item in turn.
+         */
+        void replaceAll(UnaryOperator<Item> function);
+
+        ItemStore build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.gildedrose.shopapi.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import com.gildedrose.shopapi.domain.Item;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the catalogue from the {@code inventory_item} table of the application data source, an embedded H2
+ * database unless {@code spring.datasource.*} is configured. The table is created by {@code schema.sql}.
+ *
+ * The catalogue is streamed a batch of rows at a time, and single items are looked up by their primary key.
+ */
+@Component
+@ConditionalOnProperty(name = "gildedrose.inventory.repository", havingValue = "jdbc")
+public class JdbcInventoryRepository implements InventoryRepository {
+
+    private static final String SELECT_ITEMS = "SELECT uuid, name, description, price, quantity FROM inventory_item";
+    private static final String SELECT_ITEM = SELECT_ITEMS + " WHERE uuid = ?";
+    private static final int FETCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void load(Consumer<Item> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_ITEMS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(mapItem(resultSet)));
+    }
+
+    @Override
+    public Item find(UUID itemId) {
+        List<Item> items = jdbcTemplate.query(SELECT_ITEM, (resultSet, row) -> mapItem(resultSet), itemId.toString());
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    @Override
+    public boolean isKeyed() {
+        return true;
+    }
+
+    private static Item mapItem(ResultSet resultSet) throws SQLException {
+        return Item.builder()
+                .uuid(UUID.fromString(resultSet.getString("uuid")))
+                .name(resultSet.getString("name"))
+                .description(resultSet.getString("description"))
+                .price(resultSet.getInt("price"))
+                .quantity(resultSet.getInt("quantity"))
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+import com.google.common.base.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts item views over the rolling surge window in this instance of the application.
+ *
+ * Each item gets a fixed ring of time buckets spanning the window, so recording and counting a view
+ * is O(1) and the memory held per item does not grow with traffic. Views expire a bucket at a time,
+ * which means a view may leave the window up to one bucket width (window / buckets) early.
+ */
+@Component
+@ConditionalOnProperty(name = "gildedrose.surge.backend", havingValue = "local", matchIfMissing = true)
+public class LocalSurgeCounter implements SurgeCounter {
+
+    private final long bucketWidthNanos;
+    private final int bucketCount;
+    private final Ticker ticker;
+    private final Map<UUID, ViewWindow> windows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LocalSurgeCounter(@Value("${gildedrose.surge.window.ms}") long windowMillis,
+                             @Value("${gildedrose.surge.window.buckets}") int bucketCount) {
+        this(windowMillis, bucketCount, Ticker.systemTicker());
+    }
+
+    LocalSurgeCounter(long windowMillis, int bucketCount, Ticker ticker) {
+        if (windowMillis <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("The surge window and bucket count must be positive");
+        }
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.bucketCount = bucketCount;
+        this.bucketWidthNanos = Math.max(1, (windowNanos + bucketCount - 1) / bucketCount);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public int recordView(UUID itemId) {
+        ViewWindow window = windows.get(itemId);
+        if (window == null) {
+            window = windows.computeIfAbsent(itemId, id -> new ViewWindow(bucketCount));
+        }
+        return window.record(currentBucket());
+    }
+
+    @Override
+    public int getViews(UUID itemId) {
+        ViewWindow window = windows.get(itemId);
+        return window != null ? window.count(currentBucket()) : 0;
+    }
+
+    @Override
+    public int retain(Set<UUID> itemIds) {
+        int before = windows.size();
+        windows.keySet().retainAll(itemIds);
+        return Math.max(0, before - windows.size());
+    }
+
+    @Override
+    public int size() {
+        return windows.size();
+    }
+
+    @Override
+    public void reset() {
+        windows.clear();
+    }
+
+    /**
+     * Passes the number of views in the window of every item that has one.
+     */
+    void forEachViews(ObjIntConsumer<UUID> consumer) {
+        long bucket = currentBucket();
+        windows.forEach((itemId, window) -> consumer.accept(itemId, window.count(bucket)));
+    }
+
+    private long currentBucket() {
+        return Math.floorDiv(ticker.read(), bucketWidthNanos);
+    }
+
+    private static class ViewWindow {
+
+        private final int[] counts;
+        private long head = Long.MIN_VALUE;
+        private int total;
+
+        ViewWindow(int bucketCount) {
+            this.counts = new int[bucketCount];
+        }
+
+        synchronized int record(long bucket) {
+            advance(bucket);
+            counts[slot(bucket)]++;
+            return ++total;
+        }
+
+        synchronized int count(long bucket) {
+            advance(bucket);
+            return total;
+        }
+
+        // Expire every bucket that has slid out of the window since the last access
+        private void advance(long bucket) {
+            if (head == Long.MIN_VALUE || bucket - head >= counts.length) {
+                Arrays.fill(counts, 0);
+                total = 0;
+                head = bucket;
+            } else if (bucket > head) {
+                for (long expired = head + 1; expired <= bucket; expired++) {
+                    int slot = slot(expired);
+                    total -= counts[slot];
+                    counts[slot] = 0;
+                }
+                head = bucket;
+            }
+        }
+
+        private int slot(long bucket) {
+            return (int) Math.floorMod(bucket, (long) counts.length);
+        }
+    }
+}
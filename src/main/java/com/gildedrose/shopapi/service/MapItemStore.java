@@ -0,0 +1,87 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+import com.gildedrose.shopapi.domain.Item;
+
+/**
+ * Holds items as objects in a map, so reading an item returns the same instance every time.
+ */
+final class MapItemStore implements ItemStore {
+
+    private final Map<UUID, Item> items;
+
+    MapItemStore(Map<UUID, Item> items) {
+        this.items = Collections.unmodifiableMap(items);
+    }
+
+    @Override
+    public Item get(UUID itemId) {
+        return items.get(itemId);
+    }
+
+    @Override
+    public Collection<Item> getItems() {
+        return items.values();
+    }
+
+    @Override
+    public Set<UUID> getItemIds() {
+        return items.keySet();
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean holdsItems() {
+        return true;
+    }
+
+    @Override
+    public List<Item> sort(Comparator<Item> comparator) {
+        Item[] sorted = items.values().toArray(new Item[0]);
+        Arrays.sort(sorted, comparator);
+        return Arrays.asList(sorted);
+    }
+
+    static final class Builder implements ItemStore.Builder {
+
+        private final Map<UUID, Item> items = new HashMap<>();
+
+        @Override
+        public void add(Item item) {
+            items.put(item.getUuid(), item);
+        }
+
+        @Override
+        public Item get(UUID itemId) {
+            return items.get(itemId);
+        }
+
+        @Override
+        public boolean contains(UUID itemId) {
+            return items.containsKey(itemId);
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<Item> function) {
+            items.replaceAll((itemId, item) -> function.apply(item));
+        }
+
+        @Override
+        public ItemStore build() {
+            return new MapItemStore(items);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import com.gildedrose.shopapi.domain.Item;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the current price of the items in surge.
+ *
+ * The surge tiers ({@code gildedrose.surge.tiers}) are a comma separated list of {@code views:multiplier}
+ * pairs in ascending order of views, e.g. {@code 10:1.1,50:1.25}. An item is priced at the multiplier of
+ * the highest tier whose views it exceeds in the surge window. When an item enters surge the price of every
+ * tier is computed once, and its tier is then moved as views are recorded and, every
+ * {@code gildedrose.surge.reprice.ms}, as the window slides. Items that are not in surge are at their
+ * catalogue price and have no entry, so the table grows with the items in surge rather than the catalogue.
+ * Reading a price is a lookup.
+ */
+@Component
+public class PricingEngine {
+
+    @Value("${gildedrose.surge.tiers}")
+    private String tiers;
+
+    @Value("${gildedrose.surge.reprice.ms}")
+    private long repriceMillis;
+
+    @Autowired
+    private SurgeCounter surgeCounter;
+
+    @Autowired
+    private InventoryMetrics inventoryMetrics;
+
+    private int[] thresholds;
+    private double[] multipliers;
+
+    private final Map<UUID, PriceEntry> prices = new ConcurrentHashMap<>();
+
+    private final List<Consumer<UUID>> priceListeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService repricer;
+
+    @PostConstruct
+    public void init() {
+        String[] tierValues = tiers.split(",");
+        thresholds = new int[tierValues.length];
+        multipliers = new double[tierValues.length];
+        for (int i = 0; i < tierValues.length; i++) {
+            String[] tier = tierValues[i].trim().split(":");
+            if (tier.length != 2) {
+                throw new IllegalArgumentException("Invalid surge tier " + tierValues[i]);
+            }
+            thresholds[i] = Integer.parseInt(tier[0].trim());
+            multipliers[i] = Double.parseDouble(tier[1].trim());
+            if (thresholds[i] < 0 || multipliers[i] <= 0 || (i > 0 && thresholds[i] <= thresholds[i - 1])) {
+                throw new IllegalArgumentException("Surge tiers must have ascending views and positive multipliers");
+            }
+        }
+        inventoryMetrics.registerSurgeTiers(thresholds.length, prices);
+
+        repricer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "surge-repricer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        repricer.scheduleWithFixedDelay(this::reprice, repriceMillis, repriceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (repricer != null) {
+            repricer.shutdownNow();
+        }
+    }
+
+    /**
+     * Updates the table for a newly published inventory, dropping the items that are no longer stocked and
+     * repricing the tiers of items whose catalogue price has changed. Items keep their surge tier.
+     */
+    public void publish(InventorySnapshot snapshot) {
+        prices.keySet().forEach(itemId -> {
+            Item item = snapshot.get(itemId);
+            prices.computeIfPresent(itemId, (id, entry) -> {
+                if (item == null) {
+                    return null;
+                }
+                if (entry.tierPrices[0] == item.getPrice()) {
+                    return entry;
+                }
+                PriceEntry repriced = new PriceEntry(id, getTierPrices(item));
+                repriced.tier = entry.tier;
+                return repriced;
+            });
+        });
+    }
+
+    /**
+     * Moves the item to the tier for the views in its window, and returns its price.
+     *
+     * Items whose tier does not change are priced without touching the table. Otherwise the tier is moved while
+     * holding the item's entry, from the views in the window at that moment, so views recorded at the
+     * same time cannot move it backwards or leave a tier on an entry that has just been removed.
+     */
+    public int recordViews(Item item, int views) {
+        int tier = getTier(views);
+        PriceEntry entry = prices.get(item.getUuid());
+        if (entry == null && tier == 0) {
+            return item.getPrice();
+        }
+        if (entry != null && !isEntryFor(entry, item)) {
+            return getPrice(item, tier);
+        }
+        if (entry != null && entry.tier == tier) {
+            return entry.tierPrices[tier];
+        }
+
+        entry = prices.compute(item.getUuid(), (itemId, current) -> {
+            if (current != null && !isEntryFor(current, item)) {
+                return current;
+            }
+            int currentTier = getTier(surgeCounter.getViews(itemId));
+            if (current == null) {
+                if (currentTier == 0) {
+                    return null;
+                }
+                current = new PriceEntry(itemId, getTierPrices(item));
+            }
+            return setTier(current, currentTier);
+        });
+        if (entry == null) {
+            return item.getPrice();
+        }
+        return isEntryFor(entry, item) ? entry.tierPrices[entry.tier] : getPrice(item, tier);
+    }
+
+    /**
+     * Returns the current price of the item.
+     */
+    public int getPrice(Item item) {
+        PriceEntry entry = prices.get(item.getUuid());
+        if (entry == null) {
+            return item.getPrice();
+        }
+        if (!isEntryFor(entry, item)) {
+            return getPrice(item, getTier(surgeCounter.getViews(item.getUuid())));
+        }
+        return entry.tierPrices[entry.tier];
+    }
+
+    /**
+     * Returns every item to its base price.
+     */
+    public void reset() {
+        prices.forEach((itemId, entry) -> {
+            if (prices.remove(itemId, entry) && entry.tier > 0) {
+                priceListeners.forEach(listener -> listener.accept(itemId));
+            }
+        });
+    }
+
+    /**
+     * Registers a listener that is called with the id of an item whose surge tier has changed, on the thread
+     * that recorded the views or repriced it, so it should be quick. Catalogue price changes are published
+     * with the inventory instead.
+     */
+    public void addPriceListener(Consumer<UUID> listener) {
+        priceListeners.add(listener);
+    }
+
+    // Lowers the tier of items whose views have slid out of the window without any new views
+    void reprice() {
+        prices.keySet().forEach(itemId -> prices.computeIfPresent(itemId, (id, entry) ->
+                setTier(entry, getTier(surgeCounter.getViews(id)))));
+    }
+
+    // Called while holding the item's entry in the table, returns null to remove an item that drops out of surge
+    private PriceEntry setTier(PriceEntry entry, int tier) {
+        int previous = entry.tier;
+        entry.tier = tier;
+        if (tier > previous) {
+            inventoryMetrics.recordSurgeActivation(tier);
+        }
+        if (previous != tier) {
+            priceListeners.forEach(listener -> listener.accept(entry.itemId));
+        }
+        return tier > 0 ? entry : null;
+    }
+
+    // An item read from another inventory version may have a different catalogue price to the table
+    private static boolean isEntryFor(PriceEntry entry, Item item) {
+        return entry.tierPrices[0] == item.getPrice();
+    }
+
+    private int getTier(int views) {
+        int tier = 0;
+        while (tier < thresholds.length && views > thresholds[tier]) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private int[] getTierPrices(Item item) {
+        int[] tierPrices = new int[thresholds.length + 1];
+        for (int tier = 0; tier < tierPrices.length; tier++) {
+            tierPrices[tier] = getPrice(item, tier);
+        }
+        return tierPrices;
+    }
+
+    private int getPrice(Item item, int tier) {
+        return tier == 0 ? item.getPrice() : (int) Math.round(item.getPrice() * multipliers[tier - 1]);
+    }
+
+    private static class PriceEntry {
+
+        private final UUID itemId;
+        private final int[] tierPrices;
+        // Only written while holding the entry in the table
+        private volatile int tier;
+
+        PriceEntry(UUID itemId, int[] tierPrices) {
+            this.itemId = itemId;
+            this.tierPrices = tierPrices;
+        }
+    }
+}
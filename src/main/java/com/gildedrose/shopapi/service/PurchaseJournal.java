@@ -0,0 +1,442 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.apachecommons.CommonsLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * An append-only journal of purchases, so units sold survive a restart.
+ *
+ * Purchases are written as fixed size records to memory-mapped segment files by a single writer
+ * thread. The writer takes every purchase queued while the previous batch was being synced and
+ * syncs them together, so callers wait for one fsync per batch rather than one each. When a segment
+ * fills up, or the snapshot interval passes, the totals sold per item are written to a snapshot and
+ * the older segments are deleted, so replay only reads the snapshot and the latest segment.
+ */
+@Component
+@CommonsLog
+public class PurchaseJournal {
+
+    private static final int RECORD_SIZE = 24;
+    private static final int RESET_QUANTITY = -1;
+    private static final int CHECKSUM_SEED = 0x6a09e667;
+    private static final int SNAPSHOT_MAGIC = 0x47525053;
+    private static final int MAX_BATCH = 4096;
+    private static final String SNAPSHOT_FILE = "purchases.snapshot";
+    private static final String SEGMENT_PREFIX = "purchases-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    @Value("${gildedrose.journal.enabled}")
+    private boolean enabled;
+
+    @Value("${gildedrose.journal.directory}")
+    private String directory;
+
+    @Value("${gildedrose.journal.segment.bytes}")
+    private int segmentBytes;
+
+    @Value("${gildedrose.journal.snapshot.interval.ms}")
+    private long snapshotIntervalMillis;
+
+    private final BlockingQueue<Commit> commits = new LinkedBlockingQueue<>();
+
+    private Path journalDirectory;
+    private Map<UUID, Long> replayedSales = Collections.emptyMap();
+
+    // Owned by the writer thread once the journal is open
+    private final Map<UUID, Long> totals = new HashMap<>();
+    private long segmentSequence;
+    private MappedByteBuffer segment;
+    private long recordsSinceSnapshot;
+    private long lastSnapshotTime;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journalDirectory = Paths.get(directory);
+        Files.createDirectories(journalDirectory);
+
+        long start = System.nanoTime();
+        long nextSequence = readSnapshot();
+        long lastSequence = nextSequence - 1;
+        for (Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+            if (entry.getKey() >= nextSequence) {
+                replaySegment(entry.getValue());
+                lastSequence = entry.getKey();
+            }
+        }
+        replayedSales = Collections.unmodifiableMap(new HashMap<>(totals));
+        log.info(String.format("Replayed purchases of %d items from %s in %d ms", totals.size(), journalDirectory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+        // Compact what was replayed and start appending to a new segment
+        startSegment(lastSequence + 1);
+
+        running = true;
+        writer = new Thread(this::writeCommits, "purchase-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (writer != null) {
+            stopRunning();
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Returns the units sold per item that were replayed when the journal was opened.
+     */
+    public Map<UUID, Long> getReplayedSales() {
+        return replayedSales;
+    }
+
+    /**
+     * Records the purchases and waits until they are durable.
+     */
+    public void record(Map<UUID, Integer> purchases) throws IOException {
+        await(recordAsync(purchases));
+    }
+
+    public void record(UUID itemId, int quantity) throws IOException {
+        await(commit(Collections.singletonList(new Purchase(itemId.getMostSignificantBits(), itemId.getLeastSignificantBits(), quantity))));
+    }
+
+    /**
+     * Records the purchases, completing the returned future once they are durable.
+     */
+    public CompletableFuture<Void> recordAsync(Map<UUID, Integer> purchases) {
+        List<Purchase> records = new ArrayList<>(purchases.size());
+        purchases.forEach((itemId, quantity) -> records.add(new Purchase(itemId.getMostSignificantBits(),
+                itemId.getLeastSignificantBits(), quantity)));
+        return commit(records);
+    }
+
+    /**
+     * Records that the units sold so far are discarded, and waits until it is durable.
+     */
+    public void recordReset() throws IOException {
+        await(commit(Collections.singletonList(new Purchase(0, 0, RESET_QUANTITY))));
+    }
+
+    /**
+     * Records that the units sold of the given items are discarded, and waits until it is durable.
+     */
+    public void recordReset(Collection<UUID> itemIds) throws IOException {
+        List<Purchase> records = new ArrayList<>(itemIds.size());
+        itemIds.forEach(itemId -> records.add(new Purchase(itemId.getMostSignificantBits(), itemId.getLeastSignificantBits(),
+                RESET_QUANTITY)));
+        await(commit(records));
+    }
+
+    // Commits are queued under the same lock that stops the writer, so none is queued after it has drained the queue
+    private CompletableFuture<Void> commit(List<Purchase> records) {
+        Commit commit = new Commit(records);
+        synchronized (commits) {
+            if (!running) {
+                commit.durable.completeExceptionally(new IOException("The purchase journal is not open"));
+            } else {
+                commits.add(commit);
+            }
+        }
+        return commit.durable;
+    }
+
+    private void stopRunning() {
+        synchronized (commits) {
+            running = false;
+        }
+    }
+
+    private static void await(CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the purchase journal");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private void writeCommits() {
+        try {
+            writeBatches();
+        } finally {
+            stopRunning();
+            IOException closed = new IOException("The purchase journal is closed");
+            for (Commit commit = commits.poll(); commit != null; commit = commits.poll()) {
+                commit.durable.completeExceptionally(closed);
+            }
+        }
+    }
+
+    private void writeBatches() {
+        List<Commit> batch = new ArrayList<>();
+        while (running || !commits.isEmpty()) {
+            try {
+                Commit first = commits.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    commits.drainTo(batch, MAX_BATCH);
+                    writeBatch(batch);
+                }
+                if (recordsSinceSnapshot > 0 && System.currentTimeMillis() - lastSnapshotTime >= snapshotIntervalMillis) {
+                    startSegment(segmentSequence + 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Unable to write to the purchase journal", e);
+                batch.forEach(commit -> commit.durable.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    // Writes the commits a segment at a time, so the totals snapshotted when a segment fills only hold durable records
+    private void writeBatch(List<Commit> batch) throws IOException {
+        int capacity = segmentBytes / RECORD_SIZE;
+        int start = 0;
+        while (start < batch.size()) {
+            Commit first = batch.get(start);
+            if (first.records.size() > capacity) {
+                first.durable.completeExceptionally(new IOException("Too many purchases for a purchase journal segment"));
+                start++;
+                continue;
+            }
+            if (first.records.size() > segment.remaining() / RECORD_SIZE) {
+                startSegment(segmentSequence + 1);
+            }
+
+            int end = start;
+            int records = 0;
+            while (end < batch.size() && records + batch.get(end).records.size() <= segment.remaining() / RECORD_SIZE) {
+                records += batch.get(end).records.size();
+                end++;
+            }
+            writeDurably(batch.subList(start, end));
+            start = end;
+        }
+    }
+
+    // The commits are only applied to the totals once they are synced, and are erased from the segment if they cannot be
+    private void writeDurably(List<Commit> chunk) throws IOException {
+        int position = segment.position();
+        try {
+            for (Commit commit : chunk) {
+                for (Purchase purchase : commit.records) {
+                    segment.putLong(purchase.msb)
+                            .putLong(purchase.lsb)
+                            .putInt(purchase.quantity)
+                            .putInt(checksum(purchase.msb, purchase.lsb, purchase.quantity));
+                }
+            }
+            segment.force();
+        } catch (RuntimeException e) {
+            erase(position);
+            throw e;
+        }
+
+        for (Commit commit : chunk) {
+            for (Purchase purchase : commit.records) {
+                apply(purchase.msb, purchase.lsb, purchase.quantity);
+                recordsSinceSnapshot++;
+            }
+            commit.durable.complete(null);
+        }
+    }
+
+    // Zeroes the records from the position onwards, as replay stops at the first record with no quantity
+    private void erase(int position) {
+        try {
+            int end = segment.position();
+            segment.position(position);
+            while (segment.position() < end) {
+                segment.put((byte) 0);
+            }
+            segment.position(position);
+            segment.force();
+        } catch (RuntimeException e) {
+            log.error("Unable to erase failed purchases from the purchase journal", e);
+        }
+    }
+
+    // A reset of the nil id discards the units sold of every item
+    private void apply(long msb, long lsb, int quantity) {
+        if (quantity == RESET_QUANTITY && msb == 0 && lsb == 0) {
+            totals.clear();
+        } else if (quantity == RESET_QUANTITY) {
+            totals.remove(new UUID(msb, lsb));
+        } else {
+            totals.merge(new UUID(msb, lsb), (long) quantity, Long::sum);
+        }
+    }
+
+    // Syncs the current segment, moves on to a new segment and snapshots the totals. The new segment is mapped before
+    // any segment is deleted, so the journal keeps writing to the current one if it cannot be
+    private void startSegment(long sequence) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segmentSequence = sequence;
+        recordsSinceSnapshot = 0;
+        lastSnapshotTime = System.currentTimeMillis();
+
+        // Until the snapshot is written the older segments are still replayed, the new one has no records yet
+        writeSnapshot(sequence);
+        for (Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+            if (entry.getKey() < sequence) {
+                Files.delete(entry.getValue());
+            }
+        }
+    }
+
+    private void writeSnapshot(long nextSequence) throws IOException {
+        Path snapshot = journalDirectory.resolve(SNAPSHOT_FILE);
+        Path temporary = journalDirectory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeLong(nextSequence);
+            output.writeInt(totals.size());
+            for (Map.Entry<UUID, Long> entry : totals.entrySet()) {
+                output.writeLong(entry.getKey().getMostSignificantBits());
+                output.writeLong(entry.getKey().getLeastSignificantBits());
+                output.writeLong(entry.getValue());
+            }
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename is only durable once the directory is synced, older segments are deleted after that
+        try (FileChannel directory = FileChannel.open(journalDirectory, StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private long readSnapshot() throws IOException {
+        Path snapshot = journalDirectory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (input.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Invalid purchase journal snapshot " + snapshot);
+            }
+            long nextSequence = input.readLong();
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                totals.put(new UUID(input.readLong(), input.readLong()), input.readLong());
+            }
+            return nextSequence;
+        }
+    }
+
+    // Replays records up to the first one that was never written or only partly written
+    private void replaySegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= RECORD_SIZE) {
+                long msb = buffer.getLong();
+                long lsb = buffer.getLong();
+                int quantity = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (quantity == 0 || checksum != checksum(msb, lsb, quantity)) {
+                    break;
+                }
+                apply(msb, lsb, quantity);
+            }
+        }
+    }
+
+    private Map<Long, Path> listSegments() throws IOException {
+        Map<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(journalDirectory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+            }
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long sequence) {
+        return journalDirectory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static int checksum(long msb, long lsb, int quantity) {
+        long hash = (msb * 31 + lsb) * 31 + quantity;
+        return (int) (hash ^ (hash >>> 32)) ^ CHECKSUM_SEED;
+    }
+
+    private static class Purchase {
+
+        private final long msb;
+        private final long lsb;
+        private final int quantity;
+
+        Purchase(long msb, long lsb, int quantity) {
+            this.msb = msb;
+            this.lsb = lsb;
+            this.quantity = quantity;
+        }
+    }
+
+    private static class Commit {
+
+        private final List<Purchase> records;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Commit(List<Purchase> records) {
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import com.google.common.base.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts item views over the rolling surge window across the instances of the application that share a
+ * counts file.
+ *
+ * The views of this instance are counted exactly by a {@link LocalSurgeCounter}. Every publish interval each
+ * instance writes the views in its window to its own region of the memory mapped counts file as a count-min
+ * sketch, and the views of an item are the local views plus the estimates from the sketches of the other
+ * instances. The estimates lag by up to one publish interval and can over count (but never under count) when
+ * items share sketch cells. An instance that has not published for a whole window is left out, as all of the
+ * views it published have expired by then.
+ */
+@Component
+@ConditionalOnProperty(name = "gildedrose.surge.backend", havingValue = "shared")
+public class SharedSurgeCounter implements SurgeCounter {
+
+    private static final int MAGIC = 0x47525343;
+    private static final int HEADER_BYTES = 16;
+    // Heartbeat time, the sketch being read and padding, followed by two sketches that are published in turn
+    private static final int REGION_HEADER_BYTES = 16;
+    private static final int ACTIVE_SKETCH_OFFSET = 8;
+
+    private final LocalSurgeCounter localCounter;
+    private final long windowMillis;
+    private final Path path;
+    private final int node;
+    private final int nodes;
+    private final int width;
+    private final int depth;
+    private final long publishMillis;
+    private final int sketchBytes;
+    private final int regionBytes;
+
+    private MappedByteBuffer counts;
+    private ScheduledExecutorService publisher;
+
+    @Autowired
+    public SharedSurgeCounter(@Value("${gildedrose.surge.window.ms}") long windowMillis,
+                              @Value("${gildedrose.surge.window.buckets}") int bucketCount,
+                              @Value("${gildedrose.surge.shared.file}") String file,
+                              @Value("${gildedrose.surge.shared.node}") int node,
+                              @Value("${gildedrose.surge.shared.nodes}") int nodes,
+                              @Value("${gildedrose.surge.shared.width}") int width,
+                              @Value("${gildedrose.surge.shared.depth}") int depth,
+                              @Value("${gildedrose.surge.shared.publish.ms}") long publishMillis) {
+        this(new LocalSurgeCounter(windowMillis, bucketCount, Ticker.systemTicker()), windowMillis, Paths.get(file),
+                node, nodes, width, depth, publishMillis);
+    }
+
+    SharedSurgeCounter(LocalSurgeCounter localCounter, long windowMillis, Path path, int node, int nodes, int width,
+                       int depth, long publishMillis) {
+        if (nodes <= 0 || node < 0 || node >= nodes) {
+            throw new IllegalArgumentException("The node must be between 0 and the number of nodes");
+        }
+        if (width <= 0 || depth <= 0 || publishMillis <= 0) {
+            throw new IllegalArgumentException("The sketch size and publish interval must be positive");
+        }
+        if (HEADER_BYTES + (long) nodes * (REGION_HEADER_BYTES + 8L * width * depth) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The surge counts file would be larger than 2GB");
+        }
+        this.localCounter = localCounter;
+        this.windowMillis = windowMillis;
+        this.path = path;
+        this.node = node;
+        this.nodes = nodes;
+        this.width = width;
+        this.depth = depth;
+        this.publishMillis = publishMillis;
+        this.sketchBytes = 4 * width * depth;
+        this.regionBytes = REGION_HEADER_BYTES + 2 * sketchBytes;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        boolean created;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            created = channel.size() == 0;
+            counts = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) nodes * regionBytes);
+        }
+        if (created) {
+            counts.putInt(4, nodes).putInt(8, width).putInt(12, depth).putInt(0, MAGIC);
+        } else if (counts.getInt(0) != MAGIC || counts.getInt(4) != nodes || counts.getInt(8) != width
+                || counts.getInt(12) != depth) {
+            throw new IOException("The surge counts file " + path + " was created with different settings");
+        }
+        // The other instances ignore this region until it is first published
+        counts.putLong(regionOffset(node), 0);
+
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "surge-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleAtFixedRate(this::publish, publishMillis, publishMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+            counts.putLong(regionOffset(node), 0);
+        }
+    }
+
+    @Override
+    public int recordView(UUID itemId) {
+        return localCounter.recordView(itemId) + getRemoteViews(itemId);
+    }
+
+    @Override
+    public int getViews(UUID itemId) {
+        return localCounter.getViews(itemId) + getRemoteViews(itemId);
+    }
+
+    @Override
+    public int retain(Set<UUID> itemIds) {
+        return localCounter.retain(itemIds);
+    }
+
+    @Override
+    public int size() {
+        return localCounter.size();
+    }
+
+    @Override
+    public void reset() {
+        localCounter.reset();
+    }
+
+    /**
+     * Writes the views in the window of this instance to the inactive sketch of its region, then makes it the
+     * one that is read.
+     */
+    synchronized void publish() {
+        int regionOffset = regionOffset(node);
+        int sketch = 1 - counts.getInt(regionOffset + ACTIVE_SKETCH_OFFSET);
+        int sketchOffset = sketchOffset(regionOffset, sketch);
+        for (int offset = sketchOffset; offset < sketchOffset + sketchBytes; offset += 4) {
+            counts.putInt(offset, 0);
+        }
+        localCounter.forEachViews((itemId, views) -> {
+            if (views > 0) {
+                long hash = hash(itemId);
+                for (int row = 0; row < depth; row++) {
+                    int offset = sketchOffset + cellOffset(hash, row);
+                    counts.putInt(offset, counts.getInt(offset) + views);
+                }
+            }
+        });
+        counts.putInt(regionOffset + ACTIVE_SKETCH_OFFSET, sketch);
+        counts.putLong(regionOffset, System.currentTimeMillis());
+    }
+
+    private int getRemoteViews(UUID itemId) {
+        long now = System.currentTimeMillis();
+        long hash = hash(itemId);
+        int views = 0;
+        for (int other = 0; other < nodes; other++) {
+            int regionOffset = regionOffset(other);
+            long heartbeat = counts.getLong(regionOffset);
+            if (other == node || heartbeat == 0 || now - heartbeat >= windowMillis) {
+                continue;
+            }
+            int sketchOffset = sketchOffset(regionOffset, counts.getInt(regionOffset + ACTIVE_SKETCH_OFFSET) & 1);
+            int estimate = Integer.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                estimate = Math.min(estimate, counts.getInt(sketchOffset + cellOffset(hash, row)));
+            }
+            views += estimate;
+        }
+        return views;
+    }
+
+    private int regionOffset(int region) {
+        return HEADER_BYTES + region * regionBytes;
+    }
+
+    private int sketchOffset(int regionOffset, int sketch) {
+        return regionOffset + REGION_HEADER_BYTES + sketch * sketchBytes;
+    }
+
+    // Each row picks its cell from two halves of the same hash
+    private int cellOffset(long hash, int row) {
+        int cell = Math.floorMod((int) hash + row * ((int) (hash >>> 32) | 1), width);
+        return 4 * (row * width + cell);
+    }
+
+    private static long hash(UUID itemId) {
+        return IdTable.hash(itemId.getMostSignificantBits(), itemId.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,103 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks the units sold of each item against the stock level in the catalogue.
+ *
+ * Reservations are a compare-and-set on a per-item counter, so purchases of different items never
+ * contend and concurrent purchases of the same item can never take more than the available stock.
+ * Counters are only created for items that have been purchased.
+ */
+@Component
+public class StockLedger {
+
+    public static final int INSUFFICIENT_STOCK = -1;
+
+    private final Map<UUID, AtomicInteger> soldItems = new ConcurrentHashMap<>();
+
+    /**
+     * Reserves the quantity of the item against the given stock level.
+     *
+     * @return the stock remaining after the reservation, or {@link #INSUFFICIENT_STOCK} if the
+     * reservation could not be made
+     */
+    public int reserve(UUID itemId, int stock, int quantity) {
+        if (quantity <= 0) {
+            return INSUFFICIENT_STOCK;
+        }
+
+        AtomicInteger sold = soldItems.get(itemId);
+        if (sold == null) {
+            sold = soldItems.computeIfAbsent(itemId, id -> new AtomicInteger());
+        }
+
+        while (true) {
+            int current = sold.get();
+            int remaining = stock - current - quantity;
+            if (remaining < 0) {
+                return INSUFFICIENT_STOCK;
+            }
+            if (sold.compareAndSet(current, current + quantity)) {
+                return remaining;
+            }
+        }
+    }
+
+    /**
+     * Returns units reserved by {@link #reserve} to the available stock.
+     */
+    public void release(UUID itemId, int quantity) {
+        AtomicInteger sold = soldItems.get(itemId);
+        if (sold != null) {
+            sold.updateAndGet(current -> Math.max(0, current - quantity));
+        }
+    }
+
+    /**
+     * Sets the units sold of the item, e.g. when they are replayed from the purchase journal.
+     */
+    public void setSold(UUID itemId, int sold) {
+        soldItems.put(itemId, new AtomicInteger(sold));
+    }
+
+    public int getSold(UUID itemId) {
+        AtomicInteger sold = soldItems.get(itemId);
+        return sold != null ? sold.get() : 0;
+    }
+
+    public int getAvailable(UUID itemId, int stock) {
+        return Math.max(0, stock - getSold(itemId));
+    }
+
+    /**
+     * Drops the counters of items that are no longer in the inventory.
+     */
+    public void retain(Set<UUID> itemIds) {
+        soldItems.keySet().retainAll(itemIds);
+    }
+
+    /**
+     * Returns the number of items with units sold.
+     */
+    public int size() {
+        return soldItems.size();
+    }
+
+    public void reset() {
+        soldItems.clear();
+    }
+
+    /**
+     * Discards the units sold of the given items only.
+     */
+    public void reset(Collection<UUID> itemIds) {
+        soldItems.keySet().removeAll(itemIds);
+    }
+}
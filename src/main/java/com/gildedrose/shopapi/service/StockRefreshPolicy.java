@@ -0,0 +1,22 @@
+package com.gildedrose.shopapi.service;
+
+/**
+ * How the stock of items that are already in the inventory is set when the inventory is refreshed.
+ */
+public enum StockRefreshPolicy {
+
+    /**
+     * The refreshed quantity is the stock level and the units sold so far are subtracted from it.
+     */
+    MERGE,
+
+    /**
+     * The stock of existing items is carried over unchanged, only new items take the refreshed quantity.
+     */
+    RETAIN,
+
+    /**
+     * The refreshed quantity replaces the stock and the units sold so far are discarded.
+     */
+    RESET
+}
@@ -0,0 +1,35 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Counts item views over the rolling surge window.
+ *
+ * The backend is selected with {@code gildedrose.surge.backend}: {@code local} (the default) counts the views
+ * of this instance only, {@code shared} adds the approximate views of the other instances sharing a counts file.
+ */
+public interface SurgeCounter {
+
+    /**
+     * Records a view of the item and returns the number of views in the window, including this one.
+     */
+    int recordView(UUID itemId);
+
+    /**
+     * Returns the number of views of the item in the window without recording a new one.
+     */
+    int getViews(UUID itemId);
+
+    /**
+     * Drops the windows of items that are no longer in the inventory and returns how many were dropped.
+     */
+    int retain(Set<UUID> itemIds);
+
+    /**
+     * Returns the number of items with a surge window.
+     */
+    int size();
+
+    void reset();
+}
@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS inventory_item (
+    uuid CHAR(36) PRIMARY KEY,
+    name VARCHAR(255),
+    description VARCHAR(4000),
+    price INT NOT NULL,
+    quantity INT NOT NULL
+);
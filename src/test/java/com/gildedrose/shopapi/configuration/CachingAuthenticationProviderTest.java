@@ -0,0 +1,102 @@
+package com.gildedrose.shopapi.configuration;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class CachingAuthenticationProviderTest {
+
+    private static final long TIME_TO_LIVE_MS = 10000;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger checks = new AtomicInteger();
+    private CachingAuthenticationProvider provider;
+
+    @Before
+    public void setup() {
+        provider = new CachingAuthenticationProvider(authentication -> {
+            checks.incrementAndGet();
+            if (!"secret".equals(authentication.getCredentials())) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getName(), null,
+                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        }, 100, TIME_TO_LIVE_MS, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+    }
+
+    @Test
+    public void repeatAuthenticationSkipsTheCheck() {
+        Authentication first = provider.authenticate(credentials("admin", "secret"));
+        Authentication second = provider.authenticate(credentials("admin", "secret"));
+
+        assertThat(checks.get(), equalTo(1));
+        assertThat(second.isAuthenticated(), equalTo(true));
+        assertThat(second.getName(), equalTo("admin"));
+        assertThat(second.getAuthorities(), equalTo(first.getAuthorities()));
+        assertThat(provider.getStats().hitCount(), equalTo(1L));
+        assertThat(provider.getStats().missCount(), equalTo(1L));
+    }
+
+    @Test
+    public void wrongPasswordIsCheckedAfterCorrectOne() {
+        provider.authenticate(credentials("admin", "secret"));
+        try {
+            provider.authenticate(credentials("admin", "guess"));
+            fail("Expected the wrong password to be rejected");
+        } catch (BadCredentialsException e) {
+            assertThat(checks.get(), equalTo(2));
+        }
+    }
+
+    @Test
+    public void failedAuthenticationIsNotCached() {
+        for (int i = 1; i <= 2; i++) {
+            try {
+                provider.authenticate(credentials("admin", "guess"));
+                fail("Expected the wrong password to be rejected");
+            } catch (BadCredentialsException e) {
+                assertThat(checks.get(), equalTo(i));
+            }
+        }
+    }
+
+    @Test
+    public void authenticationIsCheckedAgainOnceExpired() {
+        provider.authenticate(credentials("admin", "secret"));
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(TIME_TO_LIVE_MS));
+        provider.authenticate(credentials("admin", "secret"));
+        assertThat(checks.get(), equalTo(2));
+    }
+
+    @Test
+    public void detailsComeFromTheCurrentRequest() {
+        UsernamePasswordAuthenticationToken first = credentials("admin", "secret");
+        first.setDetails("first");
+        provider.authenticate(first);
+
+        UsernamePasswordAuthenticationToken second = credentials("admin", "secret");
+        second.setDetails("second");
+        assertThat(provider.authenticate(second).getDetails(), equalTo("second"));
+    }
+
+    private static UsernamePasswordAuthenticationToken credentials(String name, String password) {
+        return new UsernamePasswordAuthenticationToken(name, password);
+    }
+}
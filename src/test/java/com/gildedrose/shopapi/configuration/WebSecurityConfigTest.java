@@ -0,0 +1,81 @@
+package com.gildedrose.shopapi.configuration;
+
+import com.gildedrose.shopapi.controllers.InventoryController;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.service.InventoryService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application-test.properties")
+public class WebSecurityConfigTest {
+
+    @Value("${local.server.port}")
+    private String port;
+
+    @Value("${gildedrose.application.contextPath}")
+    private String contextPath;
+
+    @Value("${security.user.name}")
+    private String userName;
+
+    @Value("${security.user.password}")
+    private String password;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final String BASE_URL = "http://localhost:%s%s/%s?quantity=1";
+
+    private String purchaseUrl;
+
+    @Before
+    public void setup() {
+        Item item = inventoryService.getInventory().get(0);
+        purchaseUrl = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_ITEM + "/" + item.getUuid());
+    }
+
+    @Test
+    public void repeatPurchaseIsAuthenticatedFromTheCache() {
+        TestRestTemplate template = new TestRestTemplate(userName, password);
+
+        assertThat(template.postForEntity(purchaseUrl, null, Item.class).getStatusCode(), equalTo(HttpStatus.OK));
+        double hits = getCacheGets("hit");
+        double misses = getCacheGets("miss");
+        assertThat(template.postForEntity(purchaseUrl, null, Item.class).getStatusCode(), equalTo(HttpStatus.OK));
+
+        assertThat(getCacheGets("hit"), equalTo(hits + 1));
+        assertThat(getCacheGets("miss"), equalTo(misses));
+    }
+
+    @Test
+    public void wrongPasswordIsRejected() {
+        ResponseEntity<String> response = new TestRestTemplate(userName, password + "x").postForEntity(purchaseUrl, null, String.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.UNAUTHORIZED));
+    }
+
+    private double getCacheGets(String result) {
+        FunctionCounter gets = meterRegistry.find("cache.gets").tags("cache", "gildedrose.authentication", "result", result).functionCounter();
+        return gets != null ? gets.count() : 0;
+    }
+}
@@ -0,0 +1,161 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import com.gildedrose.shopapi.domain.Basket;
+import com.gildedrose.shopapi.domain.BasketItem;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.Order;
+import com.gildedrose.shopapi.service.InventoryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application-test.properties",
+        properties = {"gildedrose.api.mode=async", "gildedrose.api.longpoll.timeout.ms=500"})
+public class AsyncInventoryControllerTest {
+
+    @Value("${local.server.port}")
+    private String port;
+
+    @Value("${gildedrose.application.contextPath}")
+    private String contextPath;
+
+    @Value("${security.user.name}")
+    private String userName;
+
+    @Value("${security.user.password}")
+    private String password;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    private static final String BASE_URL = "http://localhost:%s%s/%s";
+
+    private List<Item> inventory;
+
+    @Before
+    public void setup() {
+        inventoryService.resetCache();
+        inventory = inventoryService.getInventory();
+    }
+
+    @Test
+    public void purchaseItemSucceedsWithAuthentication() {
+        Item inventoryItem = inventory.get(0);
+        TestRestTemplate template = new TestRestTemplate(userName, password);
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_ITEM + "/" + inventoryItem.getUuid());
+
+        ResponseEntity<Item> response = template.postForEntity(UriComponentsBuilder.fromHttpUrl(url)
+                .queryParam("quantity", 1)
+                .toUriString(), null, Item.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getBody().getName(), equalTo(inventoryItem.getName()));
+    }
+
+    @Test
+    public void purchaseItemIsRejectedIfStockIsInsufficient() {
+        Item inventoryItem = inventory.get(0);
+        TestRestTemplate template = new TestRestTemplate(userName, password);
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_ITEM + "/" + inventoryItem.getUuid());
+
+        ResponseEntity<String> response = template.postForEntity(UriComponentsBuilder.fromHttpUrl(url)
+                .queryParam("quantity", inventoryItem.getQuantity() + 1)
+                .toUriString(), null, String.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    public void purchaseBasketReturnsPricedOrder() {
+        Item inventoryItem = inventory.get(1);
+        TestRestTemplate template = new TestRestTemplate(userName, password);
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_BASKET);
+        Basket basket = Basket.builder()
+                .items(Collections.singletonList(BasketItem.builder()
+                        .itemId(inventoryItem.getUuid())
+                        .quantity(1)
+                        .build()))
+                .build();
+
+        ResponseEntity<Order> response = template.postForEntity(url, basket, Order.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getBody().getTotal(), equalTo((long) inventoryItem.getPrice()));
+    }
+
+    @Test
+    public void longPollReturnsNotModifiedIfInventoryDoesNotChange() {
+        TestRestTemplate template = new TestRestTemplate();
+        String eTag = template.getForEntity(inventoryUrl(false), String.class).getHeaders().getETag();
+
+        ResponseEntity<String> response = template.exchange(inventoryUrl(true), HttpMethod.GET, ifNoneMatch(eTag), String.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+    }
+
+    @Test
+    public void longPollMatchesETagListsAndWeakETags() {
+        TestRestTemplate template = new TestRestTemplate();
+        String eTag = template.getForEntity(inventoryUrl(false), String.class).getHeaders().getETag();
+
+        ResponseEntity<String> response = template.exchange(inventoryUrl(true), HttpMethod.GET,
+                ifNoneMatch("\"previous\", W/" + eTag), String.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+    }
+
+    @Test
+    public void longPollReturnsInventoryOncePublished() throws Exception {
+        TestRestTemplate template = new TestRestTemplate();
+        String eTag = template.getForEntity(inventoryUrl(false), String.class).getHeaders().getETag();
+
+        CompletableFuture<ResponseEntity<String>> poll = CompletableFuture.supplyAsync(() ->
+                template.exchange(inventoryUrl(true), HttpMethod.GET, ifNoneMatch(eTag), String.class));
+        Thread.sleep(100);
+        List<Item> items = inventoryService.getInventory();
+        items.get(0).setPrice(items.get(0).getPrice() + 1);
+        inventoryService.refreshInventory(items);
+
+        try {
+            ResponseEntity<String> response = poll.get(5, TimeUnit.SECONDS);
+            assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+            assertThat(response.getHeaders().getETag(), not(equalTo(eTag)));
+        } finally {
+            inventoryService.refreshInventory();
+        }
+    }
+
+    private String inventoryUrl(boolean wait) {
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_INVENTORY);
+        return wait ? UriComponentsBuilder.fromHttpUrl(url).queryParam("wait", true).toUriString() : url;
+    }
+
+    private static HttpEntity<Void> ifNoneMatch(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        return new HttpEntity<>(headers);
+    }
+}
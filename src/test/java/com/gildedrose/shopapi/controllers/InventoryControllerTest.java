@@ -1,9 +1,19 @@
 package com.gildedrose.shopapi.controllers;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gildedrose.shopapi.domain.Basket;
+import com.gildedrose.shopapi.domain.BasketItem;
 import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.Order;
 import com.gildedrose.shopapi.service.InventoryService;
 import org.junit.Before;
 import org.junit.Test;
@@ -13,6 +23,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +33,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
@@ -72,6 +87,71 @@ public class InventoryControllerTest {
         assertThat(response.getBody().size(), equalTo(3));
     }
 
+    @Test
+    public void getInventoryReturnsNotModifiedForCurrentETag() {
+        TestRestTemplate template = new TestRestTemplate();
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_INVENTORY);
+
+        ResponseEntity<String> response = template.getForEntity(url, String.class);
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        String eTag = response.getHeaders().getETag();
+        assertNotNull(eTag);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        ResponseEntity<String> cachedResponse = template.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(cachedResponse.getStatusCode(), equalTo(HttpStatus.NOT_MODIFIED));
+        assertNull(cachedResponse.getBody());
+        assertThat(cachedResponse.getHeaders().getVary(), equalTo(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING)));
+    }
+
+    @Test
+    public void getInventoryReturnsGzipWhenAccepted() throws Exception {
+        TestRestTemplate template = new TestRestTemplate();
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_INVENTORY);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        ResponseEntity<byte[]> response = template.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), equalTo("gzip"));
+        assertThat(response.getHeaders().getETag(), not(equalTo(template.getForEntity(url, String.class).getHeaders().getETag())));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            List<Item> items = new ObjectMapper().readValue(body, new TypeReference<List<Item>>() { });
+            assertThat(items.size(), equalTo(inventory.size()));
+        }
+    }
+
+    @Test
+    public void getInventoryPageReturnsProjectedFieldsAndNextLink() {
+        TestRestTemplate template = new TestRestTemplate();
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_INVENTORY);
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(url)
+                .queryParam("order", "name")
+                .queryParam("limit", 2)
+                .queryParam("fields", "name,price");
+
+        ResponseEntity<List<Map<String, Object>>> response = template.exchange(builder.toUriString(), HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<Map<String, Object>>>() { });
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getBody().size(), equalTo(2));
+        assertThat(new ArrayList<>(response.getBody().get(0).keySet()), equalTo(Arrays.asList("name", "price")));
+        assertNotNull(response.getHeaders().getFirst("Link"));
+    }
+
+    @Test
+    public void getInventoryPageRejectsUnknownFields() {
+        TestRestTemplate template = new TestRestTemplate();
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_INVENTORY);
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(url)
+                .queryParam("fields", "quantity");
+
+        ResponseEntity<String> response = template.getForEntity(builder.toUriString(), String.class);
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+    }
+
     @Test
     public void getItemReturnsItemIfValid() {
         TestRestTemplate template = new TestRestTemplate();
@@ -170,4 +250,49 @@ public class InventoryControllerTest {
             }
         }
     }
+
+    @Test
+    public void purchaseBasketRequiresAuthentication() {
+        TestRestTemplate template = new TestRestTemplate();
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_BASKET);
+
+        ResponseEntity<Order> response = template.postForEntity(url, basket(inventory.get(1), 1), Order.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.UNAUTHORIZED));
+    }
+
+    @Test
+    public void purchaseBasketReturnsPricedOrder() {
+        Item inventoryItem = inventory.get(1);
+        TestRestTemplate template = new TestRestTemplate(userName, password);
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_BASKET);
+
+        ResponseEntity<Order> response = template.postForEntity(url, basket(inventoryItem, 2), Order.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getBody().getItems().size(), equalTo(1));
+        assertThat(response.getBody().getItems().get(0).getItem().getName(), equalTo(inventoryItem.getName()));
+        assertThat(response.getBody().getItems().get(0).getQuantity(), equalTo(2));
+        assertThat(response.getBody().getTotal(), equalTo((long) inventoryItem.getPrice() * 2));
+    }
+
+    @Test
+    public void purchaseBasketFailsIfStockIsInsufficient() {
+        Item inventoryItem = inventory.get(1);
+        TestRestTemplate template = new TestRestTemplate(userName, password);
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_BASKET);
+
+        ResponseEntity<Order> response = template.postForEntity(url, basket(inventoryItem, inventoryItem.getQuantity() + 1), Order.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private Basket basket(Item item, int quantity) {
+        return Basket.builder()
+                .items(Collections.singletonList(BasketItem.builder()
+                        .itemId(item.getUuid())
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
 }
@@ -0,0 +1,177 @@
+package com.gildedrose.shopapi.controllers;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.ItemUpdate;
+import com.gildedrose.shopapi.service.InventoryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@TestPropertySource(locations = "classpath:application-test.properties", properties = "gildedrose.api.events.interval.ms=50")
+public class InventoryEventControllerTest {
+
+    @Value("${local.server.port}")
+    private String port;
+
+    @Value("${gildedrose.application.contextPath}")
+    private String contextPath;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final String BASE_URL = "http://localhost:%s%s/%s";
+
+    private List<Item> inventory;
+
+    @Before
+    public void setup() {
+        inventoryService.resetCache();
+        inventory = inventoryService.getInventory();
+    }
+
+    @Test
+    public void streamStartsAtCurrentInventoryVersion() throws Exception {
+        try (EventStream events = new EventStream(null)) {
+            assertThat(events.next(), equalTo(new String[]{InventoryEventController.EVENT_INVENTORY,
+                    String.valueOf(inventoryService.getInventoryVersion())}));
+        }
+    }
+
+    @Test
+    public void purchasesAreStreamedAtCurrentPriceAndStock() throws Exception {
+        Item inventoryItem = inventory.get(0);
+        try (EventStream events = new EventStream(null)) {
+            events.next();
+            inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+            inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+
+            ItemUpdate update;
+            do {
+                update = findUpdate(events.nextItems(), inventoryItem);
+            } while (update == null || update.getQuantity() != inventoryItem.getQuantity() - 2);
+            assertThat(update.getPrice(), equalTo(inventoryItem.getPrice()));
+        }
+    }
+
+    @Test
+    public void subscriberIsOnlySentItsItems() throws Exception {
+        Item followedItem = inventory.get(1);
+        Item otherItem = inventory.get(2);
+        try (EventStream events = new EventStream(followedItem.getUuid().toString())) {
+            events.next();
+            ItemUpdate[] updates = events.nextItems();
+            assertThat(updates.length, equalTo(1));
+            assertThat(updates[0].getQuantity(), equalTo(followedItem.getQuantity()));
+
+            inventoryService.purchaseItem(otherItem.getUuid(), 1);
+            inventoryService.purchaseItem(followedItem.getUuid(), 1);
+
+            do {
+                updates = events.nextItems();
+                assertThat(updates.length, equalTo(1));
+                assertThat(updates[0].getUuid(), equalTo(followedItem.getUuid()));
+            } while (updates[0].getQuantity() != followedItem.getQuantity() - 1);
+        }
+    }
+
+    @Test
+    public void refreshIsStreamedAsNewInventoryVersion() throws Exception {
+        try (EventStream events = new EventStream(null)) {
+            events.next();
+            inventoryService.refreshInventory();
+
+            String[] event;
+            do {
+                event = events.next();
+            } while (!event[0].equals(InventoryEventController.EVENT_INVENTORY));
+            assertThat(event[1], equalTo(String.valueOf(inventoryService.getInventoryVersion())));
+        }
+    }
+
+    @Test
+    public void invalidItemsAreRejected() {
+        ResponseEntity<String> response = new TestRestTemplate().getForEntity(eventsUrl("not-a-uuid"), String.class);
+
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private static ItemUpdate findUpdate(ItemUpdate[] updates, Item item) {
+        for (ItemUpdate update : updates) {
+            if (update.getUuid().equals(item.getUuid())) {
+                return update;
+            }
+        }
+        return null;
+    }
+
+    private String eventsUrl(String items) {
+        String url = String.format(BASE_URL, port, contextPath, InventoryController.ENDPOINT_PATH_EVENTS);
+        return items != null ? url + "?items=" + items : url;
+    }
+
+    // Reads the events of a stream one at a time, as their name and data
+    private class EventStream implements Closeable {
+
+        private final HttpURLConnection connection;
+        private final BufferedReader reader;
+
+        EventStream(String items) throws IOException {
+            connection = (HttpURLConnection) new URL(eventsUrl(items)).openConnection();
+            connection.setReadTimeout(5000);
+            reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        String[] next() throws IOException {
+            String[] event = new String[2];
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty() && event[0] != null) {
+                    return event;
+                } else if (line.startsWith("event:")) {
+                    event[0] = line.substring("event:".length());
+                } else if (line.startsWith("data:")) {
+                    event[1] = line.substring("data:".length());
+                }
+            }
+            throw new IOException("The event stream ended");
+        }
+
+        ItemUpdate[] nextItems() throws IOException {
+            String[] event;
+            do {
+                event = next();
+            } while (!event[0].equals(InventoryEventController.EVENT_ITEMS));
+            return objectMapper.readValue(event[1], ItemUpdate[].class);
+        }
+
+        @Override
+        public void close() {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import com.gildedrose.shopapi.domain.Item;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CachedItemStoreTest {
+
+    private final Map<UUID, Item> catalogue = new LinkedHashMap<>();
+    private final AtomicInteger finds = new AtomicInteger();
+    private InventoryRepository repository;
+    private List<Item> items;
+
+    @Before
+    public void setup() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Item item = new Item(new UUID(random.nextLong(), random.nextLong()), "Item " + (i % 100), "Item description",
+                    random.nextInt(100), i);
+            catalogue.put(item.getUuid(), item);
+        }
+        items = new ArrayList<>(catalogue.values());
+        repository = new InventoryRepository() {
+            @Override
+            public void load(Consumer<Item> consumer) {
+                new ArrayList<>(catalogue.values()).forEach(consumer);
+            }
+
+            @Override
+            public Item find(UUID itemId) {
+                finds.incrementAndGet();
+                return catalogue.get(itemId);
+            }
+        };
+    }
+
+    @Test
+    public void getsEveryItemById() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, items.size(), 0);
+
+        for (Item item : items) {
+            assertThat(itemStore.get(item.getUuid()), equalTo(item));
+        }
+        assertNull(itemStore.get(UUID.randomUUID()));
+        assertThat(itemStore.size(), equalTo(items.size()));
+    }
+
+    @Test
+    public void readsCachedItemsOnce() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, items.size(), 0);
+
+        for (int i = 0; i < 3; i++) {
+            itemStore.get(items.get(0).getUuid());
+        }
+        itemStore.get(UUID.randomUUID());
+
+        assertThat(finds.get(), equalTo(1));
+    }
+
+    @Test
+    public void evictsItemsBeyondTheMaximumSize() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, 10, 0);
+
+        for (Item item : items) {
+            itemStore.get(item.getUuid());
+        }
+        itemStore.get(items.get(0).getUuid());
+
+        assertThat(finds.get(), equalTo(items.size() + 1));
+    }
+
+    @Test
+    public void evictsItemsBeyondTheMaximumWeight() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, items.size(), 10000);
+
+        for (Item item : items) {
+            itemStore.get(item.getUuid());
+        }
+        itemStore.get(items.get(0).getUuid());
+
+        assertThat(finds.get(), equalTo(items.size() + 1));
+    }
+
+    @Test
+    public void keepsTheItemsThatWereLoaded() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, items.size(), 0);
+        Item removedItem = items.get(0);
+        Item addedItem = new Item(UUID.randomUUID(), "Lantern", "A hooded lantern", 30, 5);
+        catalogue.remove(removedItem.getUuid());
+        catalogue.put(addedItem.getUuid(), addedItem);
+
+        assertNull(itemStore.get(removedItem.getUuid()));
+        assertNull(itemStore.get(addedItem.getUuid()));
+        assertThat(itemStore.getItems().size(), equalTo(items.size() - 1));
+    }
+
+    @Test
+    public void iteratesItemsAndIds() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, items.size(), 0);
+
+        assertThat(new HashSet<>(itemStore.getItems()), equalTo(new HashSet<>(items)));
+        assertThat(new HashSet<>(itemStore.getItemIds()),
+                equalTo(items.stream().map(Item::getUuid).collect(Collectors.toSet())));
+        assertTrue(itemStore.getItemIds().contains(items.get(0).getUuid()));
+        assertFalse(itemStore.getItemIds().contains(UUID.randomUUID()));
+        assertThat(finds.get(), equalTo(0));
+    }
+
+    @Test
+    public void sortsItems() throws Exception {
+        CachedItemStore itemStore = CachedItemStore.load(repository, items.size(), 0);
+
+        for (InventoryOrder order : InventoryOrder.values()) {
+            List<Item> sorted = new ArrayList<>(items);
+            sorted.sort(order.getComparator());
+
+            assertThat(itemStore.sort(order.getComparator()), equalTo(sorted));
+        }
+    }
+}
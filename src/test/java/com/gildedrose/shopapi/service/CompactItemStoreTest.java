@@ -0,0 +1,111 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import com.gildedrose.shopapi.domain.Item;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CompactItemStoreTest {
+
+    private List<Item> items;
+    private ItemStore itemStore;
+
+    @Before
+    public void setup() {
+        Random random = new Random(1);
+        items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new Item(new UUID(random.nextLong(), random.nextLong()), "Item " + (i % 100), "Ünïcode item",
+                    random.nextInt(100), i));
+        }
+        itemStore = build(items);
+    }
+
+    @Test
+    public void getsEveryItemById() {
+        for (Item item : items) {
+            assertThat(itemStore.get(item.getUuid()), equalTo(item));
+        }
+        assertNull(itemStore.get(UUID.randomUUID()));
+        assertThat(itemStore.size(), equalTo(items.size()));
+    }
+
+    @Test
+    public void keepsMissingText() {
+        Item item = new Item(UUID.randomUUID(), null, "", 10, 1);
+
+        ItemStore store = build(Arrays.asList(item));
+
+        assertThat(store.get(item.getUuid()), equalTo(item));
+    }
+
+    @Test
+    public void iteratesItemsAndIds() {
+        assertThat(new HashSet<>(itemStore.getItems()), equalTo(new HashSet<>(items)));
+        assertThat(new HashSet<>(itemStore.getItemIds()),
+                equalTo(items.stream().map(Item::getUuid).collect(Collectors.toSet())));
+        assertTrue(itemStore.getItemIds().contains(items.get(0).getUuid()));
+        assertFalse(itemStore.getItemIds().contains(UUID.randomUUID()));
+    }
+
+    @Test
+    public void sortsItems() {
+        for (InventoryOrder order : InventoryOrder.values()) {
+            List<Item> sorted = new ArrayList<>(items);
+            sorted.sort(order.getComparator());
+
+            assertThat(itemStore.sort(order.getComparator()), equalTo(sorted));
+        }
+    }
+
+    @Test
+    public void replacesItemsWithTheSameId() {
+        Item item = items.get(0);
+        Item replacement = new Item(item.getUuid(), "Replaced", item.getDescription(), 99, 7);
+
+        ItemStore store = build(Arrays.asList(item, items.get(1), replacement));
+
+        assertThat(store.size(), equalTo(2));
+        assertThat(store.get(item.getUuid()), equalTo(replacement));
+        assertThat(store.get(items.get(1).getUuid()), equalTo(items.get(1)));
+    }
+
+    @Test
+    public void replacesAllItemsBeforeBuilding() {
+        CompactItemStore.Builder builder = new CompactItemStore.Builder();
+        items.forEach(builder::add);
+
+        builder.replaceAll(item -> item.getQuantity() % 2 == 0 ? item
+                : new Item(item.getUuid(), item.getName(), "Odd", item.getPrice(), 0));
+        ItemStore store = builder.build();
+
+        for (Item item : items) {
+            Item expected = item.getQuantity() % 2 == 0 ? item
+                    : new Item(item.getUuid(), item.getName(), "Odd", item.getPrice(), 0);
+            assertThat(store.get(item.getUuid()), equalTo(expected));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsItemsWithoutId() {
+        build(Arrays.asList(new Item(null, "Item", "No id", 10, 1)));
+    }
+
+    private static ItemStore build(List<Item> items) {
+        CompactItemStore.Builder builder = new CompactItemStore.Builder();
+        items.forEach(builder::add);
+        return builder.build();
+    }
+}
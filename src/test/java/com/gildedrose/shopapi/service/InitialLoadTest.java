@@ -0,0 +1,101 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import com.gildedrose.shopapi.domain.Item;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class InitialLoadTest {
+
+    private static final long TIMEOUT_MS = 10000;
+    private static final int MAX_WAITING = 2;
+
+    private InitialLoad initialLoad;
+    private ItemStore.Builder items;
+
+    @Before
+    public void setup() {
+        initialLoad = new InitialLoad(MAX_WAITING);
+        items = new MapItemStore.Builder();
+    }
+
+    @Test
+    public void findsItemsReadBeforeTheRequestOnceTheNextItemIsRead() throws Exception {
+        Item item = new Item(UUID.randomUUID(), "Sword", "A long sword", 50, 10);
+        read(item);
+
+        CompletableFuture<Item> request = initialLoad.find(item.getUuid(), TIMEOUT_MS);
+        assertFalse(request.isDone());
+        read(new Item(UUID.randomUUID(), "Shield", null, 30, 5));
+
+        assertThat(request.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), equalTo(item));
+    }
+
+    @Test
+    public void laterItemReplacesEarlierOne() throws Exception {
+        UUID itemId = UUID.randomUUID();
+        read(new Item(itemId, "Sword", "A long sword", 50, 10));
+        Item item = new Item(itemId, "Sword", "A longer sword", 60, 10);
+        read(item);
+
+        CompletableFuture<Item> request = initialLoad.find(itemId, TIMEOUT_MS);
+        read(new Item(UUID.randomUUID(), "Shield", null, 30, 5));
+
+        assertThat(request.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), equalTo(item));
+    }
+
+    @Test
+    public void findCompletesOnceItemIsRead() throws Exception {
+        Item item = new Item(UUID.randomUUID(), "Sword", "A long sword", 50, 10);
+        CompletableFuture<Item> request = initialLoad.find(item.getUuid(), TIMEOUT_MS);
+
+        assertFalse(request.isDone());
+        read(new Item(UUID.randomUUID(), "Shield", null, 30, 5));
+        assertFalse(request.isDone());
+        read(item);
+
+        assertThat(request.get(TIMEOUT_MS, TimeUnit.MILLISECONDS), equalTo(item));
+    }
+
+    @Test
+    public void completionReleasesRequestsForMissingItems() throws Exception {
+        CompletableFuture<Item> request = initialLoad.find(UUID.randomUUID(), TIMEOUT_MS);
+
+        initialLoad.complete();
+
+        assertNull(request.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertNull(initialLoad.find(UUID.randomUUID(), TIMEOUT_MS).get());
+    }
+
+    @Test
+    public void givesUpAfterTimeout() throws Exception {
+        assertNull(initialLoad.find(UUID.randomUUID(), 10).get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void answersRequestsBeyondTheWaitingLimitStraightAway() throws Exception {
+        Item item = new Item(UUID.randomUUID(), "Sword", "A long sword", 50, 10);
+        for (int i = 0; i < MAX_WAITING; i++) {
+            // Requests for unknown ids keep counting once they have timed out
+            assertNull(initialLoad.find(UUID.randomUUID(), 10).get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        }
+
+        CompletableFuture<Item> request = initialLoad.find(item.getUuid(), TIMEOUT_MS);
+
+        assertTrue(request.isDone());
+        assertNull(request.get());
+    }
+
+    private void read(Item item) {
+        items.add(item);
+        initialLoad.add(item, items);
+    }
+}
@@ -0,0 +1,59 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class InventoryHealthIndicatorTest {
+
+    private Exception failure;
+    private InventoryHealthIndicator healthIndicator;
+
+    @Before
+    public void setup() {
+        InventoryService inventoryService = new InventoryService() {
+
+            @Override
+            public Exception getInitialLoadFailure() {
+                return failure;
+            }
+
+            @Override
+            public boolean isLoading() {
+                return failure != null;
+            }
+
+            @Override
+            public long getInventoryVersion() {
+                return failure != null ? 0 : 1;
+            }
+        };
+        healthIndicator = new InventoryHealthIndicator();
+        ReflectionTestUtils.setField(healthIndicator, "inventoryService", inventoryService);
+    }
+
+    @Test
+    public void upOnceTheInventoryIsLoaded() {
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus(), equalTo(Status.UP));
+        assertThat(health.getDetails().get("version"), equalTo(1L));
+    }
+
+    @Test
+    public void downWhileTheInitialLoadIsFailing() {
+        failure = new IOException("No such file");
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus(), equalTo(Status.DOWN));
+        assertThat(health.getDetails().get("loading"), equalTo(true));
+        assertThat(health.getDetails().get("error"), equalTo("java.io.IOException: No such file"));
+    }
+}
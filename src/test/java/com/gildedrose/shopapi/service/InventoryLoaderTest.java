@@ -0,0 +1,107 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import com.gildedrose.shopapi.domain.Item;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class InventoryLoaderTest {
+
+    private InventoryLoader inventoryLoader;
+    private Path inventoryFile;
+
+    @Before
+    public void setup() throws IOException {
+        inventoryLoader = new InventoryLoader();
+        inventoryFile = Files.createTempFile("inventory", ".json");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(inventoryFile);
+    }
+
+    @Test
+    public void loadsItemsFromClasspath() throws IOException {
+        ReflectionTestUtils.setField(inventoryLoader, "location", "classpath:inventory.json");
+
+        List<Item> items = load();
+
+        assertThat(items.size(), equalTo(3));
+        assertThat(items.get(0).getUuid(), equalTo(UUID.fromString("a04b8a12-bc87-49a5-9fa9-7f51b7dcad0f")));
+        assertThat(items.get(0).getName(), equalTo("Luxury Coffee"));
+        assertThat(items.get(0).getPrice(), equalTo(12));
+        assertThat(items.get(0).getQuantity(), equalTo(10));
+    }
+
+    @Test
+    public void loadsItemsFromFileIgnoringUnknownFields() throws IOException {
+        UUID itemId = UUID.randomUUID();
+        write("{\"version\": 2, \"items\": [{\"uuid\": \"" + itemId + "\", \"name\": \"Tea\", \"description\": null, "
+                + "\"price\": 8, \"quantity\": 20, \"colour\": {\"name\": \"green\"}}], \"updated\": \"today\"}");
+        ReflectionTestUtils.setField(inventoryLoader, "location", inventoryFile.toString());
+
+        List<Item> items = load();
+
+        assertThat(items.size(), equalTo(1));
+        assertThat(items.get(0).getUuid(), equalTo(itemId));
+        assertThat(items.get(0).getName(), equalTo("Tea"));
+        assertNull(items.get(0).getDescription());
+        assertThat(items.get(0).getPrice(), equalTo(8));
+        assertThat(items.get(0).getQuantity(), equalTo(20));
+    }
+
+    @Test
+    public void streamsLargeInventories() throws IOException {
+        int size = 100000;
+        try (BufferedWriter writer = Files.newBufferedWriter(inventoryFile, StandardCharsets.UTF_8)) {
+            writer.write("{\"items\": [");
+            for (int i = 0; i < size; i++) {
+                writer.write((i > 0 ? "," : "") + "{\"uuid\": \"" + new UUID(0, i) + "\", \"name\": \"Item " + i
+                        + "\", \"description\": \"Description " + i + "\", \"price\": " + i + ", \"quantity\": 1}");
+            }
+            writer.write("]}");
+        }
+        ReflectionTestUtils.setField(inventoryLoader, "location", inventoryFile.toString());
+
+        int[] count = new int[1];
+        inventoryLoader.load(item -> {
+            assertThat(item.getUuid(), equalTo(new UUID(0, count[0])));
+            assertThat(item.getPrice(), equalTo(count[0]));
+            count[0]++;
+        });
+
+        assertThat(count[0], equalTo(size));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsItemsWithoutUuid() throws IOException {
+        write("{\"items\": [{\"name\": \"Tea\", \"price\": 8}]}");
+        ReflectionTestUtils.setField(inventoryLoader, "location", inventoryFile.toString());
+
+        load();
+    }
+
+    private List<Item> load() throws IOException {
+        List<Item> items = new ArrayList<>();
+        inventoryLoader.load(items::add);
+        return items;
+    }
+
+    private void write(String json) throws IOException {
+        Files.write(inventoryFile, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
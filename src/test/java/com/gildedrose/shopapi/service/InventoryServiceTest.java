@@ -1,7 +1,31 @@
 package com.gildedrose.shopapi.service;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import com.gildedrose.shopapi.domain.BasketItem;
 import com.gildedrose.shopapi.domain.Item;
+import com.gildedrose.shopapi.domain.Order;
+import com.gildedrose.shopapi.domain.OrderItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,11 +34,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @SpringBootTest
@@ -30,6 +58,12 @@ public class InventoryServiceTest {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private List<Item> inventory;
 
     @Before
@@ -44,6 +78,13 @@ public class InventoryServiceTest {
         assertThat(item.getPrice(), equalTo(inventory.get(0).getPrice()));
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void viewedItemIsReadOnly() {
+        Item item = inventoryService.getItem(inventory.get(0).getUuid());
+
+        item.setPrice(0);
+    }
+
     @Test
     public void getSameItemIncrementsPrice() throws Exception {
         Item inventoryItem = inventory.get(0);
@@ -78,6 +119,36 @@ public class InventoryServiceTest {
         assertThat(item.getPrice(), equalTo((int) Math.round(inventoryItem.getPrice() * 1.1)));
     }
 
+    @Test
+    public void repeatedViewsReuseTheItem() {
+        Item inventoryItem = inventory.get(0);
+        Item item = inventoryService.getItem(inventoryItem.getUuid());
+
+        assertSame(item, inventoryService.getItem(inventoryItem.getUuid()));
+    }
+
+    @Test
+    public void steadyStateViewsDoNotAllocate() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        UUID itemId = inventory.get(1).getUuid();
+        int views = 100_000;
+        for (int i = 0; i < views; i++) {
+            inventoryService.getItem(itemId);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < views; i++) {
+            inventoryService.getItem(itemId);
+        }
+        allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+
+        // Allows for the odd surge activation as the window slides, but not an allocation per view
+        assertTrue("Allocated " + allocated + " bytes for " + views + " views", allocated < views);
+    }
+
     @Test
     public void purchaseItemReducesAvailableInventory() {
         Item inventoryItem = inventory.get(0);
@@ -85,7 +156,8 @@ public class InventoryServiceTest {
 
         Item purchasedItem = inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
         assertNotNull(purchasedItem);
-        assertThat(inventory.get(0).getQuantity(), equalTo(initialQuantity - 1));
+        assertThat(purchasedItem.getQuantity(), equalTo(initialQuantity - 1));
+        assertThat(getInventoryItem(inventoryItem.getUuid()).getQuantity(), equalTo(initialQuantity - 1));
     }
 
     @Test
@@ -96,4 +168,450 @@ public class InventoryServiceTest {
         Item purchasedItem = inventoryService.purchaseItem(inventoryItem.getUuid(), initialQuantity + 1);
         assertNull(purchasedItem);
     }
+
+    @Test
+    public void purchasesAreCountedByResult() {
+        Item inventoryItem = inventory.get(0);
+        long purchases = getPurchaseCount("success");
+        long rejectedPurchases = getPurchaseCount("rejected");
+
+        inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+        inventoryService.purchaseItem(inventoryItem.getUuid(), inventoryItem.getQuantity() + 1);
+
+        assertThat(getPurchaseCount("success"), equalTo(purchases + 1));
+        assertThat(getPurchaseCount("rejected"), equalTo(rejectedPurchases + 1));
+    }
+
+    @Test
+    public void surgeActivationIsCountedOncePerSurge() {
+        Item inventoryItem = inventory.get(2);
+        double activations = getSurgeActivations();
+
+        for (int i = 0; i < surgeSize * 2; i++) {
+            inventoryService.getItem(inventoryItem.getUuid());
+        }
+
+        assertThat(getSurgeActivations(), equalTo(activations + 1));
+    }
+
+    @Test
+    public void purchaseItemsReservesEveryItemInBasket() {
+        Item firstItem = inventory.get(0);
+        Item secondItem = inventory.get(1);
+
+        Order order = inventoryService.purchaseItems(Arrays.asList(
+                basketItem(firstItem, 1), basketItem(secondItem, 1), basketItem(firstItem, 1)));
+
+        assertNotNull(order);
+        assertThat(order.getItems().size(), equalTo(2));
+        assertThat(order.getTotal(), equalTo(order.getItems().stream().mapToLong(OrderItem::getTotal).sum()));
+        assertThat(getInventoryItem(firstItem.getUuid()).getQuantity(), equalTo(firstItem.getQuantity() - 2));
+        assertThat(getInventoryItem(secondItem.getUuid()).getQuantity(), equalTo(secondItem.getQuantity() - 1));
+    }
+
+    @Test
+    public void purchaseItemsReservesNothingIfAnyItemIsUnavailable() {
+        Item firstItem = inventory.get(0);
+        Item secondItem = inventory.get(1);
+
+        Order order = inventoryService.purchaseItems(Arrays.asList(
+                basketItem(firstItem, 1), basketItem(secondItem, secondItem.getQuantity() + 1)));
+
+        assertNull(order);
+        assertThat(getInventoryItem(firstItem.getUuid()).getQuantity(), equalTo(firstItem.getQuantity()));
+        assertThat(getInventoryItem(secondItem.getUuid()).getQuantity(), equalTo(secondItem.getQuantity()));
+    }
+
+    @Test
+    public void purchasesNotifyItemListeners() {
+        Item firstItem = inventory.get(0);
+        Item secondItem = inventory.get(1);
+        List<UUID> changes = new CopyOnWriteArrayList<>();
+        inventoryService.addItemListener(changes::add);
+
+        inventoryService.purchaseItem(firstItem.getUuid(), 1);
+        inventoryService.purchaseItem(firstItem.getUuid(), firstItem.getQuantity() + 1);
+        inventoryService.purchaseItems(Collections.singletonList(basketItem(secondItem, 1)));
+
+        assertThat(changes.stream().filter(firstItem.getUuid()::equals).count(), equalTo(1L));
+        assertThat(changes.stream().filter(secondItem.getUuid()::equals).count(), equalTo(1L));
+    }
+
+    @Test
+    public void getCurrentItemDoesNotRecordView() {
+        Item inventoryItem = inventory.get(2);
+        inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+
+        for (int i = 0; i < surgeSize * 2; i++) {
+            Item item = inventoryService.getCurrentItem(inventoryItem.getUuid());
+            assertThat(item.getPrice(), equalTo(inventoryItem.getPrice()));
+            assertThat(item.getQuantity(), equalTo(inventoryItem.getQuantity() - 1));
+        }
+
+        assertThat(inventoryService.getItem(inventoryItem.getUuid()).getPrice(), equalTo(inventoryItem.getPrice()));
+        assertNull(inventoryService.getCurrentItem(UUID.randomUUID()));
+    }
+
+    @Test
+    public void refreshPublishesNewInventoryVersion() throws Exception {
+        long version = inventoryService.getInventoryVersion();
+        inventoryService.refreshInventory();
+        assertThat(inventoryService.getInventoryVersion(), equalTo(version + 1));
+        assertThat(inventoryService.getInventory().size(), equalTo(inventory.size()));
+    }
+
+    @Test
+    public void refreshMergesPurchasedStock() throws Exception {
+        Item inventoryItem = inventory.get(0);
+        int initialQuantity = inventoryItem.getQuantity();
+
+        inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+        inventoryService.refreshInventory();
+
+        assertThat(getInventoryItem(inventoryItem.getUuid()).getQuantity(), equalTo(initialQuantity - 1));
+    }
+
+    @Test
+    public void refreshRetainsCurrentStock() throws Exception {
+        Item inventoryItem = inventory.get(0);
+        int initialQuantity = inventoryItem.getQuantity();
+
+        ReflectionTestUtils.setField(inventoryService, "stockRefreshPolicy", StockRefreshPolicy.RETAIN);
+        try {
+            inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+            inventoryService.refreshInventory(restocked(inventoryItem, 100));
+            assertThat(getInventoryItem(inventoryItem.getUuid()).getQuantity(), equalTo(initialQuantity - 1));
+        } finally {
+            ReflectionTestUtils.setField(inventoryService, "stockRefreshPolicy", StockRefreshPolicy.MERGE);
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void refreshMergesPurchasedStockIntoRestockedQuantity() throws Exception {
+        Item inventoryItem = inventory.get(0);
+        int initialQuantity = inventoryItem.getQuantity();
+
+        try {
+            inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+            inventoryService.refreshInventory(restocked(inventoryItem, 100));
+            assertThat(getInventoryItem(inventoryItem.getUuid()).getQuantity(), equalTo(initialQuantity + 100 - 1));
+        } finally {
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void refreshResetsStockFromInventory() throws Exception {
+        Item inventoryItem = inventory.get(0);
+        int catalogueQuantity = inventoryService.getInventorySnapshot().get(inventoryItem.getUuid()).getQuantity();
+
+        ReflectionTestUtils.setField(inventoryService, "stockRefreshPolicy", StockRefreshPolicy.RESET);
+        try {
+            inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+            inventoryService.refreshInventory(restocked(inventoryItem, 100));
+            // The purchase is discarded along with any made by earlier tests
+            assertThat(getInventoryItem(inventoryItem.getUuid()).getQuantity(), equalTo(catalogueQuantity + 100));
+        } finally {
+            ReflectionTestUtils.setField(inventoryService, "stockRefreshPolicy", StockRefreshPolicy.MERGE);
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void reloadPublishesOnlyChangedItems() throws Exception {
+        Item unchangedItem = inventory.get(0);
+        Item changedItem = inventory.get(1);
+        Item removedItem = inventory.get(2);
+        Item addedItem = new Item(UUID.randomUUID(), "Lantern", "A hooded lantern", 30, 5);
+        Item view = inventoryService.getItem(unchangedItem.getUuid());
+        long version = inventoryService.getInventoryVersion();
+
+        List<Item> items = inventoryService.getInventorySnapshot().getItems().stream()
+                .filter(item -> !item.getUuid().equals(removedItem.getUuid()))
+                .map(item -> new Item(item.getUuid(), item.getName(), item.getDescription(),
+                        item.getUuid().equals(changedItem.getUuid()) ? item.getPrice() + 1 : item.getPrice(),
+                        item.getQuantity()))
+                .collect(Collectors.toList());
+        items.add(addedItem);
+        try {
+            InventoryDiff diff = inventoryService.reloadInventory(items);
+
+            assertThat(diff.getAdded(), equalTo(Collections.singletonList(addedItem.getUuid())));
+            assertThat(diff.getRemoved(), equalTo(Collections.singletonList(removedItem.getUuid())));
+            assertThat(diff.getChanged(), equalTo(Collections.singletonList(changedItem.getUuid())));
+            assertThat(inventoryService.getInventoryVersion(), equalTo(version + 1));
+            assertNull(inventoryService.getItem(removedItem.getUuid()));
+            assertThat(inventoryService.getItem(changedItem.getUuid()).getPrice(), equalTo(changedItem.getPrice() + 1));
+            // The unchanged item is carried over, along with its view
+            assertSame(view, inventoryService.getItem(unchangedItem.getUuid()));
+        } finally {
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void reloadWithoutChangesKeepsInventoryVersion() {
+        long version = inventoryService.getInventoryVersion();
+        List<Item> items = inventoryService.getInventorySnapshot().getItems().stream()
+                .map(item -> new Item(item.getUuid(), item.getName(), item.getDescription(), item.getPrice(), item.getQuantity()))
+                .collect(Collectors.toList());
+
+        InventoryDiff diff = inventoryService.reloadInventory(items);
+
+        assertTrue(diff.isEmpty());
+        assertThat(inventoryService.getInventoryVersion(), equalTo(version));
+    }
+
+    @Test
+    public void reloadResetsStockOfChangedItemsOnly() throws Exception {
+        Item unchangedItem = inventory.get(0);
+        Item changedItem = inventory.get(1);
+        int catalogueQuantity = inventoryService.getInventorySnapshot().get(changedItem.getUuid()).getQuantity();
+
+        ReflectionTestUtils.setField(inventoryService, "stockRefreshPolicy", StockRefreshPolicy.RESET);
+        try {
+            inventoryService.purchaseItem(unchangedItem.getUuid(), 1);
+            inventoryService.purchaseItem(changedItem.getUuid(), 1);
+            InventoryDiff diff = inventoryService.reloadInventory(restocked(changedItem, 100));
+
+            assertThat(diff.getChanged(), equalTo(Collections.singletonList(changedItem.getUuid())));
+            assertThat(getInventoryItem(unchangedItem.getUuid()).getQuantity(), equalTo(unchangedItem.getQuantity() - 1));
+            assertThat(getInventoryItem(changedItem.getUuid()).getQuantity(), equalTo(catalogueQuantity + 100));
+        } finally {
+            ReflectionTestUtils.setField(inventoryService, "stockRefreshPolicy", StockRefreshPolicy.MERGE);
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void compactStorageServesTheSameInventory() throws Exception {
+        Item inventoryItem = inventory.get(0);
+
+        ReflectionTestUtils.setField(inventoryService, "inventoryStorage", InventoryStorage.COMPACT);
+        try {
+            inventoryService.refreshInventory();
+
+            assertThat(inventoryService.getInventory().size(), equalTo(inventory.size()));
+            assertThat(inventoryService.getItem(inventoryItem.getUuid()).getName(), equalTo(inventoryItem.getName()));
+            Item purchasedItem = inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+            assertThat(purchasedItem.getQuantity(), equalTo(inventoryItem.getQuantity() - 1));
+        } finally {
+            ReflectionTestUtils.setField(inventoryService, "inventoryStorage", InventoryStorage.MAP);
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void compactStorageDoesNotKeepItemViews() throws Exception {
+        Item inventoryItem = inventory.get(0);
+
+        ReflectionTestUtils.setField(inventoryService, "inventoryStorage", InventoryStorage.COMPACT);
+        try {
+            inventoryService.refreshInventory();
+            Item item = inventoryService.getItem(inventoryItem.getUuid());
+
+            assertThat(item.getName(), equalTo(inventoryItem.getName()));
+            assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(inventoryService, "itemViews")).isEmpty());
+        } finally {
+            ReflectionTestUtils.setField(inventoryService, "inventoryStorage", InventoryStorage.MAP);
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test
+    public void cachedStorageServesTheSameInventory() throws Exception {
+        Item inventoryItem = inventory.get(0);
+
+        // Items missing from the cache are read by key, which the file repository cannot do
+        Map<UUID, Item> catalogue = new HashMap<>();
+        inventoryRepository.load(item -> catalogue.put(item.getUuid(), item));
+        ReflectionTestUtils.setField(inventoryService, "inventoryRepository", new InventoryRepository() {
+
+            @Override
+            public void load(Consumer<Item> consumer) {
+                catalogue.values().forEach(consumer);
+            }
+
+            @Override
+            public Item find(UUID itemId) {
+                return catalogue.get(itemId);
+            }
+
+            @Override
+            public boolean isKeyed() {
+                return true;
+            }
+        });
+        ReflectionTestUtils.setField(inventoryService, "inventoryStorage", InventoryStorage.CACHED);
+        try {
+            inventoryService.refreshInventory();
+
+            assertThat(inventoryService.getInventory().size(), equalTo(inventory.size()));
+            assertThat(inventoryService.getItem(inventoryItem.getUuid()).getName(), equalTo(inventoryItem.getName()));
+            assertTrue(inventoryService.isListedByPage());
+            assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(inventoryService, "itemViews")).isEmpty());
+            Item purchasedItem = inventoryService.purchaseItem(inventoryItem.getUuid(), 1);
+            assertThat(purchasedItem.getQuantity(), equalTo(inventoryItem.getQuantity() - 1));
+
+            InventoryDiff diff = inventoryService.reloadInventory();
+            assertTrue(diff.isEmpty());
+            assertThat(inventoryService.getItem(inventoryItem.getUuid()).getQuantity(), equalTo(inventoryItem.getQuantity() - 1));
+        } finally {
+            ReflectionTestUtils.setField(inventoryService, "inventoryStorage", InventoryStorage.MAP);
+            ReflectionTestUtils.setField(inventoryService, "inventoryRepository", inventoryRepository);
+            inventoryService.refreshInventory();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cachedStorageNeedsAKeyedRepository() throws Exception {
+        InventoryService service = new InventoryService();
+        ReflectionTestUtils.setField(service, "inventoryStorage", InventoryStorage.CACHED);
+        ReflectionTestUtils.setField(service, "stockRefreshPolicy", StockRefreshPolicy.MERGE);
+        ReflectionTestUtils.setField(service, "inventoryRepository", inventoryRepository);
+
+        service.init();
+    }
+
+    @Test
+    public void readersNeverSeePartialInventoryDuringRefresh() throws Exception {
+        AtomicBoolean refreshing = new AtomicBoolean(true);
+        AtomicInteger partialReads = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (refreshing.get()) {
+                if (inventoryService.getInventory().size() != inventory.size()) {
+                    partialReads.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        for (int i = 0; i < 100; i++) {
+            inventoryService.refreshInventory();
+        }
+        refreshing.set(false);
+        reader.join();
+
+        assertThat(partialReads.get(), equalTo(0));
+    }
+
+    @Test
+    public void pagesThroughInventoryInOrder() {
+        for (InventoryOrder order : InventoryOrder.values()) {
+            List<UUID> pagedIds = new ArrayList<>();
+            String cursor = null;
+            do {
+                InventoryPage page = inventoryService.getInventoryPage(order, cursor, 2);
+                assertTrue(page.getItems().size() <= 2);
+                page.getItems().forEach(item -> pagedIds.add(item.getUuid()));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            List<UUID> orderedIds = inventory.stream()
+                    .sorted(order.getComparator())
+                    .map(Item::getUuid)
+                    .collect(Collectors.toList());
+            assertThat(pagedIds, equalTo(orderedIds));
+        }
+    }
+
+    @Test
+    public void concurrentFirstPagesSortTheInventoryOnce() throws Exception {
+        Map<UUID, Item> items = new HashMap<>();
+        inventory.forEach(item -> items.put(item.getUuid(), item));
+        ItemStore itemStore = new MapItemStore(items);
+        AtomicInteger sorts = new AtomicInteger();
+        InventorySnapshot snapshot = new InventorySnapshot(1, new ItemStore() {
+
+            @Override
+            public Item get(UUID itemId) {
+                return itemStore.get(itemId);
+            }
+
+            @Override
+            public Collection<Item> getItems() {
+                return itemStore.getItems();
+            }
+
+            @Override
+            public Set<UUID> getItemIds() {
+                return itemStore.getItemIds();
+            }
+
+            @Override
+            public int size() {
+                return itemStore.size();
+            }
+
+            @Override
+            public boolean holdsItems() {
+                return true;
+            }
+
+            @Override
+            public List<Item> sort(Comparator<Item> comparator) {
+                sorts.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return itemStore.sort(comparator);
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<InventoryPage>> pages = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                pages.add(executor.submit(() -> snapshot.getPage(InventoryOrder.NAME, null, 2)));
+            }
+            for (Future<InventoryPage> page : pages) {
+                assertThat(page.get().getItems().size(), equalTo(Math.min(2, inventory.size())));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(sorts.get(), equalTo(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidInventoryCursor() {
+        inventoryService.getInventoryPage(InventoryOrder.NAME, "not-a-cursor", 2);
+    }
+
+    private BasketItem basketItem(Item item, int quantity) {
+        return BasketItem.builder()
+                .itemId(item.getUuid())
+                .quantity(quantity)
+                .build();
+    }
+
+    // The catalogue with the quantity of the item raised
+    private List<Item> restocked(Item restockedItem, int quantity) {
+        return inventoryService.getInventorySnapshot().getItems().stream()
+                .map(item -> new Item(item.getUuid(), item.getName(), item.getDescription(), item.getPrice(),
+                        item.getUuid().equals(restockedItem.getUuid()) ? item.getQuantity() + quantity : item.getQuantity()))
+                .collect(Collectors.toList());
+    }
+
+    private Item getInventoryItem(UUID itemId) {
+        return inventoryService.getInventory().stream()
+                .filter(i -> i.getUuid().equals(itemId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private long getPurchaseCount(String result) {
+        Timer purchases = meterRegistry.find("gildedrose.purchases").tags("result", result).timer();
+        return purchases != null ? purchases.count() : 0;
+    }
+
+    private double getSurgeActivations() {
+        Counter activations = meterRegistry.find("gildedrose.surge.activations")
+                .tags("tier", "1")
+                .counter();
+        return activations != null ? activations.count() : 0;
+    }
 }
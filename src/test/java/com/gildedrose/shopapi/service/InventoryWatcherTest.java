@@ -0,0 +1,88 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InventoryWatcherTest {
+
+    private Path directory;
+    private Path inventoryFile;
+    private CountDownLatch reloads;
+    private InventoryWatcher inventoryWatcher;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("inventory");
+        inventoryFile = directory.resolve("inventory.json");
+        write(inventoryFile, "{\"items\": []}");
+        reloads = new CountDownLatch(1);
+
+        InventoryService inventoryService = new InventoryService() {
+            @Override
+            public InventoryDiff reloadInventory() {
+                reloads.countDown();
+                return new InventoryDiff(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+            }
+        };
+        inventoryWatcher = new InventoryWatcher();
+        ReflectionTestUtils.setField(inventoryWatcher, "location", inventoryFile.toString());
+        ReflectionTestUtils.setField(inventoryWatcher, "debounceMillis", 50L);
+        ReflectionTestUtils.setField(inventoryWatcher, "inventoryService", inventoryService);
+        inventoryWatcher.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        inventoryWatcher.close();
+        Files.deleteIfExists(directory.resolve("other.json"));
+        Files.deleteIfExists(inventoryFile);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void reloadsWhenFileIsWritten() throws Exception {
+        write(inventoryFile, "{\"items\": [], \"version\": 2}");
+
+        assertTrue(reloads.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void reloadsWhenFileIsReplaced() throws Exception {
+        Path replacement = Files.createTempFile(directory, "inventory", ".tmp");
+        write(replacement, "{\"items\": [], \"version\": 2}");
+        Files.move(replacement, inventoryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertTrue(reloads.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void ignoresOtherFilesInDirectory() throws Exception {
+        write(directory.resolve("other.json"), "{\"items\": []}");
+
+        assertFalse(reloads.await(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsClasspathInventory() throws IOException {
+        InventoryWatcher classpathWatcher = new InventoryWatcher();
+        ReflectionTestUtils.setField(classpathWatcher, "location", "classpath:inventory.json");
+        classpathWatcher.start();
+    }
+
+    private void write(Path file, String json) throws IOException {
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import com.gildedrose.shopapi.domain.Item;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+        "gildedrose.inventory.repository=jdbc",
+        "gildedrose.inventory.storage=CACHED"})
+public class JdbcInventoryRepositoryTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    private List<Item> items;
+
+    @Before
+    public void setup() throws Exception {
+        jdbcTemplate.update("DELETE FROM inventory_item");
+        items = new ArrayList<>();
+        items.add(new Item(UUID.randomUUID(), "Sword", "A long sword", 50, 10));
+        items.add(new Item(UUID.randomUUID(), "Shield", null, 30, 5));
+        for (Item item : items) {
+            jdbcTemplate.update("INSERT INTO inventory_item (uuid, name, description, price, quantity) VALUES (?, ?, ?, ?, ?)",
+                    item.getUuid().toString(), item.getName(), item.getDescription(), item.getPrice(), item.getQuantity());
+        }
+        inventoryService.refreshInventory();
+    }
+
+    @Test
+    public void loadsEveryItem() throws Exception {
+        List<Item> loaded = new ArrayList<>();
+        inventoryRepository.load(loaded::add);
+
+        assertThat(loaded.size(), equalTo(items.size()));
+        assertThat(loaded.containsAll(items), equalTo(true));
+    }
+
+    @Test
+    public void findsItemById() throws Exception {
+        assertThat(inventoryRepository.find(items.get(1).getUuid()), equalTo(items.get(1)));
+        assertNull(inventoryRepository.find(UUID.randomUUID()));
+    }
+
+    @Test
+    public void servesInventoryFromTheDatabase() {
+        Item item = items.get(0);
+
+        assertThat(inventoryService.getInventory().size(), equalTo(items.size()));
+        assertThat(inventoryService.getItem(item.getUuid()).getName(), equalTo(item.getName()));
+        assertThat(inventoryService.purchaseItem(item.getUuid(), 1).getQuantity(), equalTo(item.getQuantity() - 1));
+    }
+}
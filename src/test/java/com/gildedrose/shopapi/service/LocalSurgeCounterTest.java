@@ -0,0 +1,97 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LocalSurgeCounterTest {
+
+    private static final long WINDOW_MS = 10000;
+    private static final int BUCKETS = 10;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private SurgeCounter surgeCounter;
+
+    @Before
+    public void setup() {
+        surgeCounter = new LocalSurgeCounter(WINDOW_MS, BUCKETS, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+    }
+
+    @Test
+    public void recordViewReturnsViewsInWindow() {
+        UUID itemId = UUID.randomUUID();
+        for (int i = 1; i <= 5; i++) {
+            assertThat(surgeCounter.recordView(itemId), equalTo(i));
+        }
+        assertThat(surgeCounter.getViews(itemId), equalTo(5));
+    }
+
+    @Test
+    public void viewsAreCountedPerItem() {
+        UUID firstItemId = UUID.randomUUID();
+        UUID secondItemId = UUID.randomUUID();
+        surgeCounter.recordView(firstItemId);
+        surgeCounter.recordView(firstItemId);
+        surgeCounter.recordView(secondItemId);
+
+        assertThat(surgeCounter.getViews(firstItemId), equalTo(2));
+        assertThat(surgeCounter.getViews(secondItemId), equalTo(1));
+        assertThat(surgeCounter.getViews(UUID.randomUUID()), equalTo(0));
+    }
+
+    @Test
+    public void viewsExpireAsTheWindowSlides() {
+        UUID itemId = UUID.randomUUID();
+        surgeCounter.recordView(itemId);
+        advance(WINDOW_MS / 2);
+        surgeCounter.recordView(itemId);
+        surgeCounter.recordView(itemId);
+        assertThat(surgeCounter.getViews(itemId), equalTo(3));
+
+        advance(WINDOW_MS / 2);
+        assertThat(surgeCounter.getViews(itemId), equalTo(2));
+
+        advance(WINDOW_MS / 2);
+        assertThat(surgeCounter.getViews(itemId), equalTo(0));
+    }
+
+    @Test
+    public void idleWindowIsClearedAfterLongGap() {
+        UUID itemId = UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            surgeCounter.recordView(itemId);
+        }
+        advance(WINDOW_MS * 100);
+        assertThat(surgeCounter.recordView(itemId), equalTo(1));
+    }
+
+    @Test
+    public void retainDropsRemovedItems() {
+        UUID keptItemId = UUID.randomUUID();
+        UUID removedItemId = UUID.randomUUID();
+        surgeCounter.recordView(keptItemId);
+        surgeCounter.recordView(removedItemId);
+
+        assertThat(surgeCounter.retain(Collections.singleton(keptItemId)), equalTo(1));
+
+        assertThat(surgeCounter.size(), equalTo(1));
+        assertThat(surgeCounter.getViews(keptItemId), equalTo(1));
+        assertThat(surgeCounter.getViews(removedItemId), equalTo(0));
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,209 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.gildedrose.shopapi.domain.Item;
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class PricingEngineTest {
+
+    private static final long WINDOW_MS = 10000;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SurgeCounter surgeCounter;
+    private PricingEngine pricingEngine;
+    private Item item;
+
+    @Before
+    public void setup() {
+        surgeCounter = new LocalSurgeCounter(WINDOW_MS, 10, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        pricingEngine = createPricingEngine("2:1.1,4:1.5");
+
+        item = new Item(UUID.randomUUID(), "Elixir", "Elixir of the Mongoose", 100, 5);
+        Map<UUID, Item> items = new HashMap<>();
+        items.put(item.getUuid(), item);
+        pricingEngine.publish(new InventorySnapshot(1, items));
+    }
+
+    @After
+    public void tearDown() {
+        pricingEngine.close();
+    }
+
+    @Test
+    public void priceRisesThroughTiersAsViewsIncrease() {
+        assertThat(recordView(), equalTo(100));
+        assertThat(recordView(), equalTo(100));
+        assertThat(recordView(), equalTo(110));
+        assertThat(recordView(), equalTo(110));
+        assertThat(recordView(), equalTo(150));
+        assertThat(pricingEngine.getPrice(item), equalTo(150));
+    }
+
+    @Test
+    public void countsActivationsOfEachTier() {
+        for (int i = 0; i < 5; i++) {
+            recordView();
+        }
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_MS));
+        pricingEngine.reprice();
+        for (int i = 0; i < 3; i++) {
+            recordView();
+        }
+
+        assertThat(getActivations("1"), equalTo(2.0));
+        assertThat(getActivations("2"), equalTo(1.0));
+    }
+
+    @Test
+    public void repriceLowersTierOnceViewsSlideOutOfWindow() {
+        for (int i = 0; i < 3; i++) {
+            recordView();
+        }
+        assertThat(pricingEngine.getPrice(item), equalTo(110));
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_MS));
+        pricingEngine.reprice();
+
+        assertThat(pricingEngine.getPrice(item), equalTo(100));
+    }
+
+    @Test
+    public void publishKeepsTierOfExistingItems() {
+        for (int i = 0; i < 3; i++) {
+            recordView();
+        }
+        Item refreshedItem = new Item(item.getUuid(), item.getName(), item.getDescription(), 200, 5);
+        Map<UUID, Item> items = new HashMap<>();
+        items.put(refreshedItem.getUuid(), refreshedItem);
+
+        pricingEngine.publish(new InventorySnapshot(2, items));
+
+        assertThat(pricingEngine.getPrice(refreshedItem), equalTo(220));
+    }
+
+    @Test
+    public void publishDropsItemsNoLongerStocked() {
+        for (int i = 0; i < 3; i++) {
+            recordView();
+        }
+
+        pricingEngine.publish(new InventorySnapshot(2, new HashMap<>()));
+
+        assertThat(pricingEngine.getPrice(item), equalTo(100));
+    }
+
+    @Test
+    public void resetReturnsItemsToBasePrice() {
+        for (int i = 0; i < 5; i++) {
+            recordView();
+        }
+
+        pricingEngine.reset();
+
+        assertThat(pricingEngine.getPrice(item), equalTo(100));
+    }
+
+    @Test
+    public void concurrentViewsLeaveItemAtTierOfItsViews() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 2000; round++) {
+                surgeCounter.reset();
+                pricingEngine.reset();
+                List<Future<?>> views = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    views.add(executor.submit(this::recordView));
+                }
+                for (Future<?> view : views) {
+                    view.get();
+                }
+
+                assertThat(pricingEngine.getPrice(item), equalTo(150));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void notifiesListenersWhenTierChanges() {
+        List<UUID> changes = new ArrayList<>();
+        pricingEngine.addPriceListener(changes::add);
+
+        for (int i = 0; i < 5; i++) {
+            recordView();
+        }
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(WINDOW_MS));
+        pricingEngine.reprice();
+
+        assertThat(changes, equalTo(Arrays.asList(item.getUuid(), item.getUuid(), item.getUuid())));
+    }
+
+    @Test
+    public void notifiesListenersWhenResetLeavesSurge() {
+        for (int i = 0; i < 3; i++) {
+            recordView();
+        }
+        List<UUID> changes = new ArrayList<>();
+        pricingEngine.addPriceListener(changes::add);
+
+        pricingEngine.reset();
+
+        assertThat(changes, equalTo(Arrays.asList(item.getUuid())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTiersOutOfOrder() {
+        createPricingEngine("4:1.5,2:1.1");
+    }
+
+    private double getActivations(String tier) {
+        return meterRegistry.find("gildedrose.surge.activations").tags("tier", tier).counter().count();
+    }
+
+    private int recordView() {
+        return pricingEngine.recordViews(item, surgeCounter.recordView(item.getUuid()));
+    }
+
+    private PricingEngine createPricingEngine(String tiers) {
+        InventoryMetrics inventoryMetrics = new InventoryMetrics();
+        ReflectionTestUtils.setField(inventoryMetrics, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(inventoryMetrics, "surgeCounter", surgeCounter);
+        ReflectionTestUtils.setField(inventoryMetrics, "stockLedger", new StockLedger());
+        inventoryMetrics.init();
+
+        PricingEngine engine = new PricingEngine();
+        ReflectionTestUtils.setField(engine, "tiers", tiers);
+        ReflectionTestUtils.setField(engine, "repriceMillis", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(engine, "surgeCounter", surgeCounter);
+        ReflectionTestUtils.setField(engine, "inventoryMetrics", inventoryMetrics);
+        engine.init();
+        return engine;
+    }
+}
@@ -0,0 +1,204 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PurchaseJournalTest {
+
+    private static final UUID FIRST_ITEM = UUID.fromString("ef9a0a7a-5f2e-4b1e-9d52-7cfb0f3e8c41");
+    private static final UUID SECOND_ITEM = UUID.fromString("0b4e2c7d-3a51-4f0c-8e6b-1d9f5a2c7e30");
+
+    private Path directory;
+    private PurchaseJournal purchaseJournal;
+
+    @Before
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (purchaseJournal != null) {
+            purchaseJournal.close();
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void replaysPurchasesWhenReopened() throws Exception {
+        open(1 << 16);
+        purchaseJournal.record(FIRST_ITEM, 2);
+        Map<UUID, Integer> basket = new HashMap<>();
+        basket.put(FIRST_ITEM, 1);
+        basket.put(SECOND_ITEM, 3);
+        purchaseJournal.record(basket);
+
+        Map<UUID, Long> sales = reopen(1 << 16).getReplayedSales();
+
+        assertThat(sales.get(FIRST_ITEM), equalTo(3L));
+        assertThat(sales.get(SECOND_ITEM), equalTo(3L));
+    }
+
+    @Test
+    public void replaysPurchasesAcrossSegments() throws Exception {
+        // Room for two records per segment
+        open(48);
+        for (int i = 0; i < 25; i++) {
+            purchaseJournal.record(FIRST_ITEM, 1);
+        }
+
+        assertThat(reopen(48).getReplayedSales().get(FIRST_ITEM), equalTo(25L));
+    }
+
+    @Test
+    public void discardsPurchasesBeforeReset() throws Exception {
+        open(1 << 16);
+        purchaseJournal.record(FIRST_ITEM, 4);
+        purchaseJournal.recordReset();
+        purchaseJournal.record(SECOND_ITEM, 1);
+
+        Map<UUID, Long> sales = reopen(1 << 16).getReplayedSales();
+
+        assertThat(sales.get(FIRST_ITEM), nullValue());
+        assertThat(sales.get(SECOND_ITEM), equalTo(1L));
+    }
+
+    @Test
+    public void discardsPurchasesOfResetItems() throws Exception {
+        open(1 << 16);
+        purchaseJournal.record(FIRST_ITEM, 4);
+        purchaseJournal.record(SECOND_ITEM, 2);
+        purchaseJournal.recordReset(Collections.singletonList(FIRST_ITEM));
+        purchaseJournal.record(FIRST_ITEM, 1);
+
+        Map<UUID, Long> sales = reopen(1 << 16).getReplayedSales();
+
+        assertThat(sales.get(FIRST_ITEM), equalTo(1L));
+        assertThat(sales.get(SECOND_ITEM), equalTo(2L));
+    }
+
+    @Test
+    public void recordsConcurrentPurchases() throws Exception {
+        open(1 << 12);
+        int threads = 16;
+        int purchases = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < purchases; i++) {
+                        purchaseJournal.record(FIRST_ITEM, 1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(reopen(1 << 12).getReplayedSales().get(FIRST_ITEM), equalTo((long) threads * purchases));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsPurchasesWhenClosed() throws Exception {
+        open(1 << 16);
+        purchaseJournal.close();
+
+        purchaseJournal.record(FIRST_ITEM, 1);
+    }
+
+    @Test
+    public void keepsBasketsWithinOneSegment() throws Exception {
+        // Room for two records per segment
+        open(48);
+        Map<UUID, Integer> basket = new HashMap<>();
+        basket.put(FIRST_ITEM, 1);
+        basket.put(SECOND_ITEM, 2);
+        purchaseJournal.record(FIRST_ITEM, 1);
+        purchaseJournal.record(basket);
+        basket.put(UUID.randomUUID(), 1);
+        try {
+            purchaseJournal.record(basket);
+            fail("A basket larger than a segment should be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+
+        Map<UUID, Long> sales = reopen(48).getReplayedSales();
+
+        assertThat(sales.get(FIRST_ITEM), equalTo(2L));
+        assertThat(sales.get(SECOND_ITEM), equalTo(2L));
+    }
+
+    @Test
+    public void completesEveryPurchaseWhenClosedConcurrently() throws Exception {
+        open(1 << 16);
+        List<CompletableFuture<Void>> purchases = new ArrayList<>();
+        Thread closer = new Thread(() -> {
+            try {
+                purchaseJournal.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        closer.start();
+        for (int i = 0; i < 10000; i++) {
+            purchases.add(purchaseJournal.recordAsync(Collections.singletonMap(FIRST_ITEM, 1)));
+        }
+        closer.join();
+
+        for (CompletableFuture<Void> purchase : purchases) {
+            try {
+                purchase.get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                // rejected or failed once the journal closed
+            }
+        }
+    }
+
+    private void open(int segmentBytes) throws IOException {
+        purchaseJournal = new PurchaseJournal();
+        ReflectionTestUtils.setField(purchaseJournal, "enabled", true);
+        ReflectionTestUtils.setField(purchaseJournal, "directory", directory.toString());
+        ReflectionTestUtils.setField(purchaseJournal, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(purchaseJournal, "snapshotIntervalMillis", 60000L);
+        purchaseJournal.open();
+    }
+
+    private PurchaseJournal reopen(int segmentBytes) throws Exception {
+        purchaseJournal.close();
+        open(segmentBytes);
+        return purchaseJournal;
+    }
+}
@@ -0,0 +1,121 @@
+package com.gildedrose.shopapi.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import com.google.common.base.Ticker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class SharedSurgeCounterTest {
+
+    private static final long WINDOW_MS = 500;
+    private static final int BUCKETS = 10;
+    private static final long PUBLISH_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private Path countsFile;
+    private SharedSurgeCounter firstNode;
+    private SharedSurgeCounter secondNode;
+
+    @Before
+    public void setup() throws IOException {
+        countsFile = Files.createTempFile("surge", ".counts");
+        Files.delete(countsFile);
+        firstNode = open(0, 2);
+        secondNode = open(1, 2);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        firstNode.close();
+        secondNode.close();
+        Files.deleteIfExists(countsFile);
+    }
+
+    @Test
+    public void viewsOfOtherNodesAreAddedOncePublished() {
+        UUID itemId = UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            firstNode.recordView(itemId);
+        }
+        assertThat(secondNode.getViews(itemId), equalTo(0));
+
+        firstNode.publish();
+
+        assertThat(secondNode.getViews(itemId), equalTo(3));
+        assertThat(secondNode.recordView(itemId), equalTo(4));
+        assertThat(firstNode.getViews(itemId), equalTo(3));
+    }
+
+    @Test
+    public void publishingReplacesPreviousViews() {
+        UUID itemId = UUID.randomUUID();
+        firstNode.recordView(itemId);
+        firstNode.publish();
+        firstNode.reset();
+        firstNode.publish();
+
+        assertThat(secondNode.getViews(itemId), equalTo(0));
+    }
+
+    @Test
+    public void viewsAreEstimatedPerItem() {
+        UUID itemId = UUID.randomUUID();
+        UUID otherItemId = UUID.randomUUID();
+        firstNode.recordView(itemId);
+        firstNode.recordView(itemId);
+        firstNode.recordView(otherItemId);
+        firstNode.publish();
+
+        assertThat(secondNode.getViews(itemId), equalTo(2));
+        assertThat(secondNode.getViews(otherItemId), equalTo(1));
+    }
+
+    @Test
+    public void nodesThatStopPublishingAreIgnored() throws InterruptedException {
+        UUID itemId = UUID.randomUUID();
+        firstNode.recordView(itemId);
+        firstNode.publish();
+
+        Thread.sleep(WINDOW_MS + 100);
+
+        assertThat(secondNode.getViews(itemId), equalTo(0));
+    }
+
+    @Test
+    public void closedNodesAreIgnored() {
+        UUID itemId = UUID.randomUUID();
+        firstNode.recordView(itemId);
+        firstNode.publish();
+
+        firstNode.close();
+
+        assertThat(secondNode.getViews(itemId), equalTo(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsCountsFileWithDifferentSettings() throws IOException {
+        open(2, 3);
+    }
+
+    private SharedSurgeCounter open(int node, int nodes) throws IOException {
+        LocalSurgeCounter localCounter = new LocalSurgeCounter(WINDOW_MS, BUCKETS, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        SharedSurgeCounter surgeCounter = new SharedSurgeCounter(localCounter, WINDOW_MS, countsFile, node, nodes,
+                1024, 4, PUBLISH_MS);
+        surgeCounter.open();
+        return surgeCounter;
+    }
+}
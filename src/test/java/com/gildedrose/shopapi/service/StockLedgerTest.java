@@ -0,0 +1,131 @@
+package com.gildedrose.shopapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class StockLedgerTest {
+
+    private static final int THREADS = 64;
+
+    private StockLedger stockLedger;
+
+    @Before
+    public void setup() {
+        stockLedger = new StockLedger();
+    }
+
+    @Test
+    public void reserveReturnsRemainingStock() {
+        UUID itemId = UUID.randomUUID();
+        assertThat(stockLedger.reserve(itemId, 10, 3), equalTo(7));
+        assertThat(stockLedger.reserve(itemId, 10, 7), equalTo(0));
+        assertThat(stockLedger.getAvailable(itemId, 10), equalTo(0));
+    }
+
+    @Test
+    public void cannotReserveMoreThanAvailable() {
+        UUID itemId = UUID.randomUUID();
+        assertThat(stockLedger.reserve(itemId, 10, 11), equalTo(StockLedger.INSUFFICIENT_STOCK));
+        assertThat(stockLedger.reserve(itemId, 10, 10), equalTo(0));
+        assertThat(stockLedger.reserve(itemId, 10, 1), equalTo(StockLedger.INSUFFICIENT_STOCK));
+        assertThat(stockLedger.getSold(itemId), equalTo(10));
+    }
+
+    @Test
+    public void cannotReserveNonPositiveQuantity() {
+        UUID itemId = UUID.randomUUID();
+        assertThat(stockLedger.reserve(itemId, 10, 0), equalTo(StockLedger.INSUFFICIENT_STOCK));
+        assertThat(stockLedger.reserve(itemId, 10, -5), equalTo(StockLedger.INSUFFICIENT_STOCK));
+        assertThat(stockLedger.getAvailable(itemId, 10), equalTo(10));
+    }
+
+    @Test
+    public void concurrentReservationsNeverOversell() throws Exception {
+        UUID itemId = UUID.randomUUID();
+        int stock = 10000;
+
+        List<Integer> reserved = runConcurrently(() -> {
+            int units = 0;
+            while (true) {
+                int quantity = ThreadLocalRandom.current().nextInt(1, 4);
+                int remaining = stockLedger.reserve(itemId, stock, quantity);
+                if (remaining == StockLedger.INSUFFICIENT_STOCK) {
+                    // Only single units can still be available once a larger reservation fails
+                    if (stockLedger.reserve(itemId, stock, 1) == StockLedger.INSUFFICIENT_STOCK) {
+                        return units;
+                    }
+                    units++;
+                } else {
+                    units += quantity;
+                }
+            }
+        });
+
+        int total = reserved.stream().mapToInt(Integer::intValue).sum();
+        assertThat(total, equalTo(stock));
+        assertThat(stockLedger.getSold(itemId), equalTo(stock));
+        assertThat(stockLedger.getAvailable(itemId, stock), equalTo(0));
+    }
+
+    @Test
+    public void concurrentReservationsAcrossItemsAreIndependent() throws Exception {
+        UUID[] itemIds = new UUID[8];
+        for (int i = 0; i < itemIds.length; i++) {
+            itemIds[i] = UUID.randomUUID();
+        }
+        int stock = 2000;
+
+        // Every thread makes enough attempts that each item is sold out
+        List<Integer> reserved = runConcurrently(() -> {
+            int units = 0;
+            for (int i = 0; i < stock * 2; i++) {
+                UUID itemId = itemIds[ThreadLocalRandom.current().nextInt(itemIds.length)];
+                if (stockLedger.reserve(itemId, stock, 1) != StockLedger.INSUFFICIENT_STOCK) {
+                    units++;
+                }
+            }
+            return units;
+        });
+
+        int total = reserved.stream().mapToInt(Integer::intValue).sum();
+        assertThat(total, equalTo(stock * itemIds.length));
+        for (UUID itemId : itemIds) {
+            assertThat(stockLedger.getSold(itemId), equalTo(stock));
+        }
+    }
+
+    private List<Integer> runConcurrently(Callable<Integer> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}